@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.sprockets.util;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the speed of the Geos distance methods. Run with:
+ *
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class GeosBenchmark {
+	private static final int POINTS = 1024;
+
+	private final double[] mLatitudes = new double[POINTS];
+	private final double[] mLongitudes = new double[POINTS];
+	private double[] mCosines;
+	private final double[] mDistances = new double[POINTS];
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1L);
+		for (int i = 0; i < POINTS; i++) {
+			mLatitudes[i] = random.nextDouble() * 140.0 - 70.0;
+			mLongitudes[i] = random.nextDouble() * 360.0 - 180.0;
+		}
+		mCosines = Geos.cosines(mLatitudes);
+	}
+
+	@Benchmark
+	public double equirectangular() {
+		double sum = 0.0;
+		for (int i = 1; i < POINTS; i++) {
+			sum += Geos.equirectangular(mLatitudes[i - 1], mLongitudes[i - 1], mLatitudes[i],
+					mLongitudes[i], KILOMETER);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double approximate() {
+		double sum = 0.0;
+		for (int i = 1; i < POINTS; i++) {
+			sum += Geos.approximate(mLatitudes[i - 1], mLongitudes[i - 1], mLatitudes[i],
+					mLongitudes[i], KILOMETER);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double[] approximateBatch() {
+		return Geos.distances(mLatitudes[0], mLongitudes[0], mLatitudes, mLongitudes, mCosines,
+				KILOMETER, mDistances);
+	}
+
+	@Benchmark
+	public double haversine() {
+		double sum = 0.0;
+		for (int i = 1; i < POINTS; i++) {
+			sum += Geos.distance(mLatitudes[i - 1], mLongitudes[i - 1], mLatitudes[i],
+					mLongitudes[i], KILOMETER);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double vincenty() {
+		double sum = 0.0;
+		for (int i = 1; i < POINTS; i++) {
+			sum += Geos.vincenty(mLatitudes[i - 1], mLongitudes[i - 1], mLatitudes[i],
+					mLongitudes[i], KILOMETER);
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(GeosBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.immutables.value;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+
+import java.lang.annotation.Target;
+
+import org.immutables.value.Value.Immutable;
+
+import net.sf.sprockets.sql.RowMapper;
+
+/**
+ * <p>
+ * Generates a {@link RowMapper RowMapper} for an {@link Immutable Immutable}, named
+ * {@code *RowMapper}, that fills the type's builder from result set columns without reflection.
+ * For example:
+ * </p>
+ * <pre>{@code
+ * @Immutable
+ * @RowMapped
+ * public abstract class Person {
+ *     public abstract long getId();
+ *
+ *     @RowMapped.Column("full_name")
+ *     public abstract String getName();
+ * }
+ *
+ * List<Person> people = Statements.allRows(stmt, PersonRowMapper.INSTANCE);
+ * }</pre>
+ * <p>
+ * Each abstract accessor is read from the column of the same name in lower underscore case, e.g.
+ * {@code getNameId()} from {@code name_id}, unless it has a {@link Column Column}. Accessors can
+ * return primitives, their wrappers, {@code String}, {@code BigDecimal}, or {@code byte[]}. Null
+ * values are not set, so that {@code @Nullable} attributes stay null and other attributes fail
+ * when built. The {@code Immutable*} type name and {@code builder()} method must not be renamed
+ * by a {@code Style}.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+@Target(TYPE)
+public @interface RowMapped {
+	/**
+	 * Names the column that an accessor is read from.
+	 */
+	@Target(METHOD)
+	@interface Column {
+		String value();
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.immutables.value;
+
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * Generates the {@code *RowMapper} classes for {@link RowMapped RowMapped} types.
+ *
+ * @since 4.1.0
+ */
+@SupportedAnnotationTypes("net.sf.sprockets.immutables.value.RowMapped")
+public class RowMappedProcessor extends AbstractProcessor {
+	/** ResultSet getter for each supported type, with wrappers checked for null. */
+	private static final Map<String, String> sGetters = new HashMap<>();
+
+	static {
+		String[][] getters = { { "int", "Int" }, { "long", "Long" }, { "double", "Double" },
+				{ "float", "Float" }, { "boolean", "Boolean" }, { "short", "Short" },
+				{ "byte", "Byte" }, { "java.lang.Integer", "Int" }, { "java.lang.Long", "Long" },
+				{ "java.lang.Double", "Double" }, { "java.lang.Float", "Float" },
+				{ "java.lang.Boolean", "Boolean" }, { "java.lang.Short", "Short" },
+				{ "java.lang.Byte", "Byte" }, { "java.lang.String", "String" },
+				{ "java.math.BigDecimal", "BigDecimal" }, { "byte[]", "Bytes" } };
+		for (String[] getter : getters) {
+			sGetters.put(getter[0], getter[1]);
+		}
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+		for (Element element : env.getElementsAnnotatedWith(RowMapped.class)) {
+			if (element instanceof TypeElement) {
+				try {
+					generate((TypeElement) element);
+				} catch (IOException e) {
+					processingEnv.getMessager().printMessage(ERROR,
+							"could not write RowMapper: " + e.getMessage(), element);
+				}
+			}
+		}
+		return false;
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		List<ExecutableElement> accessors = new ArrayList<>();
+		for (ExecutableElement method : ElementFilter.methodsIn(
+				processingEnv.getElementUtils().getAllMembers(type))) {
+			if (method.getModifiers().contains(ABSTRACT) && !method.getModifiers().contains(STATIC)
+					&& method.getParameters().isEmpty()
+					&& method.getReturnType().getKind() != TypeKind.VOID) {
+				if (!sGetters.containsKey(method.getReturnType().toString())) {
+					processingEnv.getMessager().printMessage(ERROR, "unsupported RowMapped type: "
+							+ method.getReturnType(), method);
+					return;
+				}
+				accessors.add(method);
+			}
+		}
+		String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName()
+				.toString();
+		String mapper = type.getSimpleName() + "RowMapper";
+		String immutable = "Immutable" + type.getSimpleName();
+		String value = type.getQualifiedName().toString();
+		StringBuilder s = new StringBuilder(1024);
+		if (!pkg.isEmpty()) {
+			s.append("package ").append(pkg).append(";\n\n");
+		}
+		s.append("/**\n * Maps result set rows to {@link ").append(value).append("}s.\n */\n");
+		if (isPublic(type)) {
+			s.append("public ");
+		}
+		s.append("final class ").append(mapper)
+				.append(" implements net.sf.sprockets.sql.RowMapper<").append(value).append("> {\n");
+		s.append("\tpublic static final ").append(mapper).append(" INSTANCE = new ").append(mapper)
+				.append("();\n\n");
+		s.append("\tprivate ").append(mapper).append("() {\n\t}\n\n");
+		s.append("\t@Override\n\tpublic int[] columns(java.sql.ResultSet rs) ")
+				.append("throws java.sql.SQLException {\n\t\treturn new int[] {");
+		for (int i = 0; i < accessors.size(); i++) {
+			s.append(i > 0 ? ", " : " ").append("rs.findColumn(").append(processingEnv
+					.getElementUtils().getConstantExpression(column(accessors.get(i)))).append(')');
+		}
+		s.append(" };\n\t}\n\n");
+		s.append("\t@Override\n\tpublic ").append(value)
+				.append(" map(java.sql.ResultSet rs, int[] columns) ")
+				.append("throws java.sql.SQLException {\n");
+		s.append("\t\t").append(immutable).append(".Builder builder = ").append(immutable)
+				.append(".builder();\n");
+		for (int i = 0; i < accessors.size(); i++) {
+			ExecutableElement accessor = accessors.get(i);
+			String returnType = accessor.getReturnType().toString();
+			String attribute = attribute(accessor);
+			String get = "rs.get" + sGetters.get(returnType) + "(columns[" + i + "])";
+			if (accessor.getReturnType().getKind().isPrimitive()) {
+				s.append("\t\tbuilder.").append(attribute).append('(').append(get).append(");\n");
+			} else {
+				String var = "v" + i;
+				s.append("\t\t").append(returnType).append(' ').append(var).append(" = ")
+						.append(get).append(";\n");
+				s.append("\t\tif (").append(returnType.startsWith("java.lang.")
+						&& !returnType.equals("java.lang.String") ? "!rs.wasNull()"
+								: var + " != null").append(") {\n");
+				s.append("\t\t\tbuilder.").append(attribute).append('(').append(var)
+						.append(");\n\t\t}\n");
+			}
+		}
+		s.append("\t\treturn builder.build();\n\t}\n}\n");
+		try (Writer out = processingEnv.getFiler()
+				.createSourceFile(pkg.isEmpty() ? mapper : pkg + '.' + mapper, type).openWriter()) {
+			out.write(s.toString());
+		}
+	}
+
+	/**
+	 * True if the type and any types that it is nested in are public.
+	 */
+	private static boolean isPublic(Element type) {
+		for (Element e = type; !(e instanceof PackageElement); e = e.getEnclosingElement()) {
+			if (!e.getModifiers().contains(PUBLIC)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the accessor name without any {@code get} prefix.
+	 */
+	private static String attribute(ExecutableElement accessor) {
+		String name = accessor.getSimpleName().toString();
+		if (name.length() > 3 && name.startsWith("get") && Character.isUpperCase(name.charAt(3))) {
+			name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+		}
+		return name;
+	}
+
+	/**
+	 * Get the {@link RowMapped.Column Column} name or the attribute name in lower underscore case.
+	 */
+	private static String column(ExecutableElement accessor) {
+		RowMapped.Column column = accessor.getAnnotation(RowMapped.Column.class);
+		if (column != null) {
+			return column.value();
+		}
+		String attribute = attribute(accessor);
+		StringBuilder s = new StringBuilder(attribute.length() + 4);
+		for (int i = 0; i < attribute.length(); i++) {
+			char c = attribute.charAt(i);
+			if (Character.isUpperCase(c)) {
+				s.append('_').append(Character.toLowerCase(c));
+			} else {
+				s.append(c);
+			}
+		}
+		return s.toString();
+	}
+}
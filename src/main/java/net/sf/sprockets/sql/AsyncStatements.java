@@ -0,0 +1,470 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.sf.sprockets.util.concurrent.ResultCallback;
+
+/**
+ * <p>
+ * Runs the {@link Statements} methods on an executor and returns futures for their results, so
+ * that independent queries can be executed at the same time without blocking the calling thread.
+ * For example:
+ * </p>
+ * <pre>{@code
+ * AsyncStatements async = new AsyncStatements(AsyncStatements.newExecutor(4, 64));
+ * ListenableFuture<long[]> ids = async.allLongs(con1.prepareStatement(idsSql));
+ * ListenableFuture<String> name = async.firstString(setLongs(con2.prepareStatement(nameSql), id));
+ * }</pre>
+ * <p>
+ * A statement is used on an executor thread until its future is done, so neither it nor its
+ * connection should be used by another thread in the meantime unless the driver allows it. The
+ * statement is closed when the query is finished, as with the synchronous methods.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class AsyncStatements {
+	private final ListeningExecutorService mExecutor;
+	/** Maximum number of statements that the executor runs at the same time. */
+	private final int mThreads;
+
+	/**
+	 * Run statements on the executor.
+	 */
+	@Inject
+	public AsyncStatements(ExecutorService executor) {
+		mExecutor = MoreExecutors.listeningDecorator(executor);
+		mThreads = executor instanceof ThreadPoolExecutor
+				? ((ThreadPoolExecutor) executor).getMaximumPoolSize()
+				: executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+						: Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Get an executor with up to the number of daemon threads that queues up to the number of
+	 * statements while all threads are busy. When the queue is full, further statements are
+	 * rejected with a {@link RejectedExecutionException}.
+	 */
+	public static ExecutorService newExecutor(int threads, int queueSize) {
+		checkArgument(threads > 0, "threads must be greater than zero");
+		checkArgument(queueSize > 0, "queueSize must be greater than zero");
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize),
+				new ThreadFactoryBuilder().setNameFormat("sprockets-sql-%d").setDaemon(true)
+						.build());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Get the executor that statements are run on.
+	 */
+	public ListeningExecutorService getExecutor() {
+		return mExecutor;
+	}
+
+	/**
+	 * Notify the callback when the future is done. The callback is notified on the thread that
+	 * completes the future, so it should be quick.
+	 *
+	 * @return the future
+	 */
+	public static <V> ListenableFuture<V> addCallback(ListenableFuture<V> future,
+			final ResultCallback<? super V> callback) {
+		Futures.addCallback(future, new FutureCallback<V>() {
+			@Override
+			public void onSuccess(V result) {
+				callback.onSuccess(result);
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				callback.onFailure(null, t);
+			}
+		}, directExecutor());
+		return future;
+	}
+
+	/**
+	 * Execute the query, get the int value in the first row and column of the result set, and close
+	 * the statement.
+	 *
+	 * @see Statements#firstInt(PreparedStatement)
+	 */
+	public ListenableFuture<Integer> firstInt(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return Statements.firstInt(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the long value in the first row and column of the result set, and
+	 * close the statement.
+	 *
+	 * @see Statements#firstLong(PreparedStatement)
+	 */
+	public ListenableFuture<Long> firstLong(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws SQLException {
+				return Statements.firstLong(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the String value in the first row and column of the result set, and
+	 * close the statement.
+	 *
+	 * @see Statements#firstString(PreparedStatement)
+	 */
+	public ListenableFuture<String> firstString(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<String>() {
+			@Override
+			public String call() throws SQLException {
+				return Statements.firstString(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the int values in the first row of the result set, and close the
+	 * statement.
+	 *
+	 * @see Statements#firstIntRow(PreparedStatement)
+	 */
+	public ListenableFuture<int[]> firstIntRow(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<int[]>() {
+			@Override
+			public int[] call() throws SQLException {
+				return Statements.firstIntRow(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the long values in the first row of the result set, and close the
+	 * statement.
+	 *
+	 * @see Statements#firstLongRow(PreparedStatement)
+	 */
+	public ListenableFuture<long[]> firstLongRow(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<long[]>() {
+			@Override
+			public long[] call() throws SQLException {
+				return Statements.firstLongRow(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the String values in the first row of the result set, and close the
+	 * statement.
+	 *
+	 * @see Statements#firstStringRow(PreparedStatement)
+	 */
+	public ListenableFuture<List<String>> firstStringRow(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<List<String>>() {
+			@Override
+			public List<String> call() throws SQLException {
+				return Statements.firstStringRow(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the int values in the first column of the result set, and close the
+	 * statement.
+	 *
+	 * @see Statements#allInts(PreparedStatement)
+	 */
+	public ListenableFuture<int[]> allInts(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<int[]>() {
+			@Override
+			public int[] call() throws SQLException {
+				return Statements.allInts(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the long values in the first column of the result set, and close the
+	 * statement.
+	 *
+	 * @see Statements#allLongs(PreparedStatement)
+	 */
+	public ListenableFuture<long[]> allLongs(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<long[]>() {
+			@Override
+			public long[] call() throws SQLException {
+				return Statements.allLongs(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the query, get the String values in the first column of the result set, and close the
+	 * statement.
+	 *
+	 * @see Statements#allStrings(PreparedStatement)
+	 */
+	public ListenableFuture<List<String>> allStrings(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<List<String>>() {
+			@Override
+			public List<String> call() throws SQLException {
+				return Statements.allStrings(stmt);
+			}
+		});
+	}
+
+	/**
+	 * <p>
+	 * Split the keys into chunks, execute the query for each chunk, and get the long values in the
+	 * first column of all of the result sets. The chunks are queried at the same time on up to
+	 * one connection from the source per executor thread, so lookups of many keys can use more
+	 * than one core when the database allows concurrent readers, like SQLite in WAL mode. For
+	 * example:
+	 * </p>
+	 * <pre>{@code
+	 * ListenableFuture<long[]> nameIds = async.allLongsIn(pool,
+	 *         "SELECT name_id FROM person WHERE %s", "person_id", personIds, 500);
+	 * }</pre>
+	 * <p>
+	 * The keys are bound as parameters, so each full chunk has the same SQL. If the executor
+	 * rejects some of the connections' work, the others query more of the chunks, and if it
+	 * rejects all of them, the chunks are queried on the calling thread. When a chunk fails, the
+	 * chunks that haven't started are not queried.
+	 * </p>
+	 *
+	 * @param sql
+	 *            query with {@code %s} where the {@link SQLite#inParams(String, int) IN} operator
+	 *            for each chunk should be
+	 * @param column
+	 *            compared to the keys
+	 * @param chunkSize
+	 *            maximum number of keys in each query, up to {@link SQLite#MAX_VARIABLE_NUMBER}
+	 * @return values from the first chunk's results, followed by those from the second chunk's
+	 *         results, and so on
+	 */
+	public ListenableFuture<long[]> allLongsIn(final DataSource source, String sql,
+			final String column, final long[] keys, final int chunkSize) {
+		checkArgument(chunkSize > 0 && chunkSize <= SQLite.MAX_VARIABLE_NUMBER,
+				"chunkSize must be between 1 and " + SQLite.MAX_VARIABLE_NUMBER);
+		int i = sql.indexOf("%s");
+		checkArgument(i >= 0, "sql must contain %s");
+		final String prefix = sql.substring(0, i);
+		final String suffix = sql.substring(i + 2);
+		final int chunks = (keys.length + chunkSize - 1) / chunkSize;
+		if (chunks == 0) {
+			return Futures.immediateFuture(new long[0]);
+		}
+		final long[][] results = new long[chunks][];
+		final AtomicInteger next = new AtomicInteger();
+		final SettableFuture<long[]> future = SettableFuture.create();
+		final List<ListenableFuture<?>> workers = new ArrayList<>();
+		/* each worker uses one connection to query chunks until there are none left */
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int chunk = next.getAndIncrement();
+				if (chunk >= chunks || future.isDone()) {
+					return; // the other workers queried all of the chunks
+				}
+				try (Connection con = source.getConnection()) {
+					String fullSql = null;
+					for (; chunk < chunks && !future.isDone(); chunk = next.getAndIncrement()) {
+						int from = chunk * chunkSize;
+						int length = Math.min(chunkSize, keys.length - from);
+						String chunkSql = length == chunkSize && fullSql != null ? fullSql
+								: SQLite.inParams(column, length, new StringBuilder(prefix))
+										.append(suffix).toString();
+						if (length == chunkSize) {
+							fullSql = chunkSql;
+						}
+						results[chunk] = Statements.allLongs(Statements.setLongs(1,
+								con.prepareStatement(chunkSql), keys, from, length));
+					}
+				} catch (Throwable t) {
+					future.setException(t);
+					return;
+				}
+				synchronized (results) {
+					if (!future.isDone() && next.get() >= chunks && done(results)) {
+						future.set(Longs.concat(results));
+					}
+				}
+			}
+		};
+		int threads = Math.min(mThreads, chunks);
+		for (int w = 0; w < threads; w++) {
+			try {
+				workers.add(mExecutor.submit(worker));
+			} catch (RejectedExecutionException e) {
+				break;
+			}
+		}
+		if (workers.isEmpty()) {
+			worker.run();
+		}
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				for (ListenableFuture<?> w : workers) {
+					w.cancel(false);
+				}
+			}
+		}, directExecutor());
+		return future;
+	}
+
+	/**
+	 * True if all of the results have been set.
+	 */
+	private static boolean done(long[][] results) {
+		for (long[] result : results) {
+			if (result == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Execute the query, get the values in all rows of the first columns of the result set, and
+	 * close the statement.
+	 *
+	 * @see Statements#allColumns(PreparedStatement, Class...)
+	 */
+	public ListenableFuture<Object[]> allColumns(final PreparedStatement stmt,
+			final Class<?>... types) {
+		return mExecutor.submit(new Callable<Object[]>() {
+			@Override
+			public Object[] call() throws SQLException {
+				return Statements.allColumns(stmt, types);
+			}
+		});
+	}
+
+	/**
+	 * Execute the insert statement, get the first generated key as an int, and close the statement.
+	 *
+	 * @see Statements#firstIntKey(PreparedStatement)
+	 */
+	public ListenableFuture<Integer> firstIntKey(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return Statements.firstIntKey(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the insert statement, get the first generated key as a long, and close the statement.
+	 *
+	 * @see Statements#firstLongKey(PreparedStatement)
+	 */
+	public ListenableFuture<Long> firstLongKey(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws SQLException {
+				return Statements.firstLongKey(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the batches of the insert statement, get all of the generated keys as longs, and
+	 * close the statement.
+	 *
+	 * @param stmt
+	 *            must have been created with {@link Statement#RETURN_GENERATED_KEYS} and already
+	 *            have batches added
+	 * @see Statements#allLongKeys(PreparedStatement)
+	 */
+	public ListenableFuture<long[]> allLongKeys(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<long[]>() {
+			@Override
+			public long[] call() throws SQLException {
+				return Statements.allLongKeys(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the insert, update, or delete statement, get the number of rows affected, and close
+	 * the statement.
+	 *
+	 * @see Statements#update(PreparedStatement)
+	 */
+	public ListenableFuture<Integer> update(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return Statements.update(stmt);
+			}
+		});
+	}
+
+	/**
+	 * Execute the batches, get the number of rows affected in each batch, and close the statement.
+	 *
+	 * @see Statements#batch(PreparedStatement)
+	 */
+	public ListenableFuture<int[]> batch(final PreparedStatement stmt) {
+		return mExecutor.submit(new Callable<int[]>() {
+			@Override
+			public int[] call() throws SQLException {
+				return Statements.batch(stmt);
+			}
+		});
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * <p>
+ * Adds rows to a statement's batch and executes it whenever the batch reaches a maximum number of
+ * rows or bytes, so that large imports don't need to hold every row in memory. If the connection
+ * is in auto-commit mode, all batches are executed in one transaction that is committed by
+ * {@link #finish()}. Otherwise the caller's transaction is used and left for the caller to
+ * complete. For example:
+ * </p>
+ * <pre>{@code
+ * try (BatchWriter writer = new BatchWriter(con.prepareStatement(insert))) {
+ *     for (Person person : people) {
+ *         writer.setLongs(person.id()).setStrings(person.name()).addBatch();
+ *     }
+ *     long rows = writer.finish().getRowCount();
+ * }
+ * }</pre>
+ * <p>
+ * If the writer is closed before it is finished, the transaction that it started is rolled back.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class BatchWriter implements AutoCloseable {
+	/** Default maximum number of rows in a batch. */
+	public static final int MAX_ROWS = 1000;
+
+	/** Default maximum number of parameter bytes in a batch. */
+	public static final long MAX_BYTES = 1024 * 1024;
+
+	private final PreparedStatement mStmt;
+	private final int mMaxRows;
+	private final long mMaxBytes;
+	private final boolean mAutoCommit;
+	/** Sum of the counts that the driver reported for the executed rows. */
+	private long mRowCount;
+	/** Number of executed rows that the driver didn't report a count for. */
+	private long mUnknownRows;
+	/** Index of the next parameter in the current row. */
+	private int mIndex = 1;
+	private int mRows;
+	private long mBytes;
+	private boolean mClosed;
+
+	/**
+	 * Add rows to the statement's batch, executing it every {@link #MAX_ROWS} rows or
+	 * {@link #MAX_BYTES} bytes.
+	 */
+	public BatchWriter(PreparedStatement stmt) throws SQLException {
+		this(stmt, MAX_ROWS, MAX_BYTES);
+	}
+
+	/**
+	 * Add rows to the statement's batch, executing it when it reaches either maximum.
+	 *
+	 * @param maxBytes
+	 *            approximate size of the parameters, where ints are 4 bytes, longs are 8 bytes,
+	 *            and Strings are 2 bytes per char
+	 */
+	public BatchWriter(PreparedStatement stmt, int maxRows, long maxBytes) throws SQLException {
+		checkArgument(maxRows > 0, "maxRows must be greater than zero");
+		checkArgument(maxBytes > 0, "maxBytes must be greater than zero");
+		mStmt = stmt;
+		mMaxRows = maxRows;
+		mMaxBytes = maxBytes;
+		Connection con = stmt.getConnection();
+		mAutoCommit = con.getAutoCommit();
+		if (mAutoCommit) {
+			con.setAutoCommit(false);
+		}
+	}
+
+	/**
+	 * Set the next parameters in the current row.
+	 */
+	public BatchWriter setInts(int... params) throws SQLException {
+		checkState(!mClosed, "closed");
+		Statements.setInts(mIndex, mStmt, params);
+		mIndex += params.length;
+		mBytes += params.length * 4L;
+		return this;
+	}
+
+	/**
+	 * Set the next parameters in the current row.
+	 */
+	public BatchWriter setLongs(long... params) throws SQLException {
+		checkState(!mClosed, "closed");
+		Statements.setLongs(mIndex, mStmt, params);
+		mIndex += params.length;
+		mBytes += params.length * 8L;
+		return this;
+	}
+
+	/**
+	 * Set the next parameters in the current row.
+	 */
+	public BatchWriter setStrings(String... params) throws SQLException {
+		checkState(!mClosed, "closed");
+		Statements.setStrings(mIndex, mStmt, params);
+		mIndex += params.length;
+		for (String param : params) {
+			if (param != null) {
+				mBytes += param.length() * 2L;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Add the current row to the batch and execute the batch if it is full.
+	 */
+	public BatchWriter addBatch() throws SQLException {
+		checkState(!mClosed, "closed");
+		mStmt.addBatch();
+		mIndex = 1;
+		if (++mRows >= mMaxRows || mBytes >= mMaxBytes) {
+			flush();
+		}
+		return this;
+	}
+
+	/**
+	 * Add a row with the parameters to the batch and execute the batch if it is full.
+	 */
+	public BatchWriter addBatch(int... params) throws SQLException {
+		return setInts(params).addBatch();
+	}
+
+	/**
+	 * Add a row with the parameters to the batch and execute the batch if it is full.
+	 */
+	public BatchWriter addBatch(long... params) throws SQLException {
+		return setLongs(params).addBatch();
+	}
+
+	/**
+	 * Add a row with the parameters to the batch and execute the batch if it is full.
+	 */
+	public BatchWriter addBatch(String... params) throws SQLException {
+		return setStrings(params).addBatch();
+	}
+
+	/**
+	 * Execute the rows that have been added to the batch, if any.
+	 */
+	public BatchWriter flush() throws SQLException {
+		checkState(!mClosed, "closed");
+		if (mRows > 0) {
+			for (int count : mStmt.executeBatch()) {
+				if (count >= 0) {
+					mRowCount += count;
+				} else {
+					mUnknownRows++;
+				}
+			}
+			mRows = 0;
+			mBytes = 0L;
+		}
+		return this;
+	}
+
+	/**
+	 * Execute any remaining rows, commit the transaction if this writer started it, and close the
+	 * statement.
+	 */
+	public BatchWriter finish() throws SQLException {
+		flush();
+		Connection con = mStmt.getConnection();
+		if (mAutoCommit) {
+			try {
+				con.commit();
+			} catch (SQLException | RuntimeException e) {
+				try {
+					close(); // roll back
+				} catch (SQLException closeFailure) {
+					e.addSuppressed(closeFailure);
+				}
+				throw e;
+			}
+		}
+		mClosed = true;
+		try {
+			if (mAutoCommit) {
+				con.setAutoCommit(true);
+			}
+		} finally {
+			mStmt.close();
+		}
+		return this;
+	}
+
+	/**
+	 * Get the number of rows affected by the executed batches. Rows that the driver didn't report
+	 * a count for are not included.
+	 *
+	 * @see #getUnknownRowCount()
+	 */
+	public long getRowCount() {
+		return mRowCount;
+	}
+
+	/**
+	 * Get the number of executed rows that the driver didn't report a count for, e.g.
+	 * {@link java.sql.Statement#SUCCESS_NO_INFO SUCCESS_NO_INFO}.
+	 */
+	public long getUnknownRowCount() {
+		return mUnknownRows;
+	}
+
+	/**
+	 * If the writer has not been {@link #finish() finished}, roll back the transaction that it
+	 * started, if any, and close the statement.
+	 */
+	@Override
+	public void close() throws SQLException {
+		if (!mClosed) {
+			mClosed = true;
+			try {
+				if (mAutoCommit) {
+					Connection con = mStmt.getConnection();
+					try {
+						con.rollback();
+					} finally {
+						con.setAutoCommit(true);
+					}
+				}
+			} finally {
+				mStmt.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static java.sql.Statement.NO_GENERATED_KEYS;
+import static org.immutables.value.Value.Style.ImplementationVisibility.PACKAGE;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * <p>
+ * Records the latency, rows, and errors of the {@link Statements} methods, grouped by SQL. Stats
+ * are only recorded after they are {@link Statements#setQueryStats(QueryStats) enabled}, and only
+ * grouped by SQL for statements that were {@link #prepare(Connection, String) prepared} by this
+ * class, {@link #register(PreparedStatement, String) registered} with it, or prepared by a
+ * {@link StatementCache}. Other statements are recorded together under {@link #UNKNOWN_SQL}.
+ * </p>
+ * <p>
+ * Recording doesn't lock; each SQL's counters are striped across threads and summed when a
+ * {@link #snapshot() snapshot} is taken.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class QueryStats {
+	/** Groups statements whose SQL is not known. */
+	public static final String UNKNOWN_SQL = "?";
+
+	/**
+	 * Number of latency histogram buckets. Bucket 0 counts executions that took 0 nanoseconds and
+	 * bucket {@code i} counts those that took less than 2<sup>i</sup> nanoseconds and at least
+	 * 2<sup>i-1</sup>. The last bucket also counts anything longer.
+	 */
+	public static final int BUCKETS = 40;
+
+	private final ConcurrentMap<String, Counters> mSqls = new MapMaker().makeMap();
+	/** Weak identity keys, so registered statements can be garbage collected. */
+	private final ConcurrentMap<PreparedStatement, Counters> mStmts =
+			new MapMaker().weakKeys().makeMap();
+	private final Counters mUnknown = counters(UNKNOWN_SQL);
+
+	/**
+	 * Prepare a statement for the SQL and record stats for it under the SQL.
+	 */
+	public PreparedStatement prepare(Connection con, String sql) throws SQLException {
+		return prepare(con, sql, NO_GENERATED_KEYS);
+	}
+
+	/**
+	 * Prepare a statement for the SQL and record stats for it under the SQL.
+	 *
+	 * @param autoGeneratedKeys
+	 *            {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+	 */
+	public PreparedStatement prepare(Connection con, String sql, int autoGeneratedKeys)
+			throws SQLException {
+		return register(autoGeneratedKeys == NO_GENERATED_KEYS ? con.prepareStatement(sql)
+				: con.prepareStatement(sql, autoGeneratedKeys), sql);
+	}
+
+	/**
+	 * Record stats for the statement under the SQL.
+	 */
+	public PreparedStatement register(PreparedStatement stmt, String sql) {
+		mStmts.put(stmt, counters(sql));
+		return stmt;
+	}
+
+	private Counters counters(String sql) {
+		Counters counters = mSqls.get(sql);
+		if (counters == null) {
+			counters = new Counters();
+			Counters existing = mSqls.putIfAbsent(sql, counters);
+			if (existing != null) {
+				counters = existing;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * Record a successful execution of the statement.
+	 */
+	void succeeded(PreparedStatement stmt, long nanos, long rows) {
+		counters(stmt).add(nanos, rows, false);
+	}
+
+	/**
+	 * Record an unsuccessful execution of the statement.
+	 */
+	void failed(PreparedStatement stmt, long nanos) {
+		counters(stmt).add(nanos, 0L, true);
+	}
+
+	private Counters counters(PreparedStatement stmt) {
+		Counters counters = mStmts.get(stmt);
+		return counters != null ? counters : mUnknown;
+	}
+
+	/**
+	 * Get the stats recorded so far for each SQL that has been executed.
+	 */
+	public Map<String, Snapshot> snapshot() {
+		Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+		for (Map.Entry<String, Counters> entry : mSqls.entrySet()) {
+			Snapshot snapshot = entry.getValue().snapshot(entry.getKey());
+			if (snapshot.getCount() > 0L) {
+				snapshots.put(entry.getKey(), snapshot);
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Discard the stats recorded so far. Executions that finish while the stats are being reset
+	 * may be partially discarded.
+	 */
+	public void reset() {
+		for (Counters counters : mSqls.values()) {
+			counters.reset();
+		}
+	}
+
+	/**
+	 * Counters for one SQL, striped so that threads usually update different cache lines.
+	 */
+	private static class Counters {
+		private static final int STRIPES = 8; // power of two
+		private static final int COUNT = BUCKETS;
+		private static final int NANOS = BUCKETS + 1;
+		private static final int ROWS = BUCKETS + 2;
+		private static final int ERRORS = BUCKETS + 3;
+		/** Padded to a multiple of 128 bytes. */
+		private static final int STRIPE_SIZE = (ERRORS + 1 + 15) & ~15;
+
+		private final AtomicLongArray mCounts = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+
+		void add(long nanos, long rows, boolean error) {
+			int i = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_SIZE;
+			int bucket = nanos > 0L ? Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1)
+					: 0;
+			mCounts.incrementAndGet(i + bucket);
+			mCounts.incrementAndGet(i + COUNT);
+			mCounts.addAndGet(i + NANOS, Math.max(nanos, 0L));
+			if (rows > 0L) {
+				mCounts.addAndGet(i + ROWS, rows);
+			}
+			if (error) {
+				mCounts.incrementAndGet(i + ERRORS);
+			}
+		}
+
+		Snapshot snapshot(String sql) {
+			long[] sums = new long[ERRORS + 1];
+			for (int stripe = 0; stripe < STRIPES; stripe++) {
+				int offset = stripe * STRIPE_SIZE;
+				for (int i = 0; i < sums.length; i++) {
+					sums[i] += mCounts.get(offset + i);
+				}
+			}
+			long[] histogram = new long[BUCKETS];
+			System.arraycopy(sums, 0, histogram, 0, BUCKETS);
+			return ImmutableSnapshot.builder().sql(sql).count(sums[COUNT])
+					.totalNanos(sums[NANOS]).rowCount(sums[ROWS]).errorCount(sums[ERRORS])
+					.histogram(histogram).build();
+		}
+
+		void reset() {
+			for (int i = 0, length = mCounts.length(); i < length; i++) {
+				mCounts.set(i, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Stats recorded for one SQL.
+	 */
+	@Immutable
+	@Style(visibility = PACKAGE)
+	public abstract static class Snapshot {
+		Snapshot() {
+		}
+
+		public abstract String getSql();
+
+		/**
+		 * Number of times that the statement was executed, including unsuccessful executions.
+		 */
+		public abstract long getCount();
+
+		/**
+		 * Sum of the execution latencies.
+		 */
+		public abstract long getTotalNanos();
+
+		/**
+		 * Number of rows that were read from queries or affected by updates.
+		 */
+		public abstract long getRowCount();
+
+		/**
+		 * Number of times that the statement threw an exception.
+		 */
+		public abstract long getErrorCount();
+
+		/**
+		 * Number of executions in each latency bucket, as described by {@link QueryStats#BUCKETS}.
+		 */
+		public abstract long[] getHistogram();
+
+		/**
+		 * Get the mean execution latency.
+		 */
+		public long getMeanNanos() {
+			long count = getCount();
+			return count > 0L ? getTotalNanos() / count : 0L;
+		}
+
+		/**
+		 * Get the upper bound of the latency bucket that contains the percentile.
+		 *
+		 * @param percentile
+		 *            between 0.0 and 100.0
+		 * @return 0 if there aren't any executions
+		 */
+		public long getPercentileNanos(double percentile) {
+			long[] histogram = getHistogram();
+			long rank = (long) Math.ceil(getCount() * percentile / 100.0);
+			long seen = 0L;
+			for (int i = 0; i < histogram.length; i++) {
+				seen += histogram[i];
+				if (seen >= rank && seen > 0L) {
+					return i > 0 ? 1L << i : 0L;
+				}
+			}
+			return 0L;
+		}
+	}
+}
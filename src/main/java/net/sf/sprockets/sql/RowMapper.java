@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.sprockets.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import net.sf.sprockets.immutables.value.RowMapped;
+
+/**
+ * Creates objects from the rows of result sets. Implementations are usually generated for
+ * {@link RowMapped RowMapped} types and used with {@link Statements#allRows(PreparedStatement,
+ * RowMapper) Statements.allRows}. Mappers are stateless and can be shared between threads.
+ *
+ * @since 4.1.0
+ */
+public interface RowMapper<T> {
+	/**
+	 * Find the indexes of the columns that {@link #map(ResultSet, int[]) map} reads. This only
+	 * needs to be called once for each result set.
+	 */
+	int[] columns(ResultSet rs) throws SQLException;
+
+	/**
+	 * Create an object from the current row of the result set.
+	 *
+	 * @param columns
+	 *            from {@link #columns(ResultSet)}
+	 */
+	T map(ResultSet rs, int[] columns) throws SQLException;
+}
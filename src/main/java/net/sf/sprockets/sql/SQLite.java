@@ -17,14 +17,26 @@
 
 package net.sf.sprockets.sql;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.base.Preconditions.checkState;
 import static java.text.Normalizer.Form.NFD;
 import static java.util.Locale.US;
 import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_KM;
 import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_MI;
 import static net.sf.sprockets.util.MeasureUnit.MILE;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
 
@@ -33,6 +45,7 @@ import javax.annotation.Nullable;
 import org.apache.commons.lang3.time.FastDateFormat;
 
 import net.sf.sprockets.util.Geos;
+import net.sf.sprockets.util.LongArray;
 import net.sf.sprockets.util.MeasureUnit;
 
 /**
@@ -41,6 +54,80 @@ import net.sf.sprockets.util.MeasureUnit;
  * @since 2.2.0
  */
 public class SQLite {
+	/**
+	 * Default maximum number of parameters in a statement.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MAX_VARIABLE_NUMBER = 999;
+
+	/**
+	 * Maximum number of values that {@link #allLongsIn(StatementCache, String, String, long[])
+	 * allLongsIn} queries in chunks of parameters. More values are queried from a temporary table.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MAX_CHUNKED_VALUES = 16 * MAX_VARIABLE_NUMBER;
+
+	/**
+	 * Default minimum number of consecutive values that
+	 * {@link #inRanges(String, long[], int, StringBuilder) inRanges} puts in a range.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MIN_RANGE_LENGTH = 4;
+
+	/**
+	 * Number of parameters in
+	 * {@link #distanceParams(String, String, String, MeasureUnit, String) distanceParams}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int DISTANCE_PARAMS = 4;
+
+	/**
+	 * Number of parameters in {@link #withinParams(String, String) withinParams}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int WITHIN_PARAMS = 6;
+
+	/**
+	 * Maximum number of different strings whose normalised values are reused by
+	 * {@link #normalise(String[])}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MAX_NORMALISED_VALUES = 4096;
+
+	/**
+	 * Number of chars in a {@link #datetime(long) datetime}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int DATETIME_LENGTH = 19;
+
+	/**
+	 * Earliest time that datetimes are calculated for, the start of the Gregorian calendar. Earlier
+	 * times are formatted with the Julian calendar, as {@link java.util.GregorianCalendar} does.
+	 */
+	private static final long MIN_DATETIME_MILLIS = -12219292800000L; // 1582-10-15
+
+	/** Start of year 1 in the Julian calendar. Earlier years would be formatted without an era. */
+	private static final long MIN_YEAR_MILLIS = -62135769600000L;
+
+	/** Latest time that datetimes are calculated for, the end of year 9999. */
+	private static final long MAX_DATETIME_MILLIS = 253402300799999L;
+
+	/** Most recently used day. */
+	private static volatile Day sDay;
+
+	/** Most recently used second. */
+	private static volatile Second sSecond;
+
+	/** Holds the values of large IN lists. */
+	private static final String IN_TABLE = "temp.sprockets_in";
+
 	private SQLite() {
 	}
 
@@ -278,30 +365,383 @@ public class SQLite {
 		return datetime(System.currentTimeMillis());
 	}
 
-	private static FastDateFormat sFormat;
-
 	/**
 	 * Get UTC date and time for the milliseconds since the epoch, in the format
 	 * {@code YYYY-MM-DD hh:mm:ss}.
 	 */
 	public static String datetime(long millis) {
-		if (sFormat == null) {
-			sFormat = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss", TimeZone.getTimeZone("UTC"),
-					US);
+		if (millis < MIN_DATETIME_MILLIS || millis > MAX_DATETIME_MILLIS) {
+			return Fallback.FORMAT.format(millis);
+		}
+		long second = floorDiv(millis, 1000L);
+		Second cached = sSecond;
+		if (cached != null && cached.mSecond == second) {
+			return cached.mValue;
+		}
+		char[] chars = new char[DATETIME_LENGTH];
+		writeDatetime(second, chars, 0);
+		String datetime = new String(chars);
+		sSecond = new Second(second, datetime);
+		return datetime;
+	}
+
+	/**
+	 * Append UTC date and time for the milliseconds since the epoch, in the format
+	 * {@code YYYY-MM-DD hh:mm:ss}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static StringBuilder datetime(long millis, StringBuilder s) {
+		if (millis < MIN_DATETIME_MILLIS || millis > MAX_DATETIME_MILLIS) {
+			return s.append(Fallback.FORMAT.format(millis));
+		}
+		long second = floorDiv(millis, 1000L);
+		Second cached = sSecond;
+		if (cached != null && cached.mSecond == second) {
+			return s.append(cached.mValue);
+		}
+		int secondOfDay = (int) (second - floorDiv(second, 86400L) * 86400L);
+		s.append(day(second).mDate).append(' ');
+		appendTwoDigits(s, secondOfDay / 3600).append(':');
+		appendTwoDigits(s, secondOfDay / 60 % 60).append(':');
+		return appendTwoDigits(s, secondOfDay % 60);
+	}
+
+	/**
+	 * Write UTC date and time for the milliseconds since the epoch to the array, in the format
+	 * {@code YYYY-MM-DD hh:mm:ss}.
+	 *
+	 * @param offset
+	 *            index to write the first char at. {@link #DATETIME_LENGTH} chars are written.
+	 * @return index after the last char written
+	 * @throws IllegalArgumentException
+	 *             if the year is not between 1 and 9999
+	 * @since 4.1.0
+	 */
+	public static int datetime(long millis, char[] chars, int offset) {
+		if (millis < MIN_DATETIME_MILLIS || millis > MAX_DATETIME_MILLIS) {
+			checkArgument(millis >= MIN_YEAR_MILLIS, "year must not be before 1");
+			String datetime = Fallback.FORMAT.format(millis);
+			checkArgument(datetime.length() == DATETIME_LENGTH, "year must have four digits");
+			datetime.getChars(0, DATETIME_LENGTH, chars, offset);
+			return offset + DATETIME_LENGTH;
+		}
+		long second = floorDiv(millis, 1000L);
+		Second cached = sSecond;
+		if (cached != null && cached.mSecond == second) {
+			cached.mValue.getChars(0, DATETIME_LENGTH, chars, offset);
+			return offset + DATETIME_LENGTH;
+		}
+		return writeDatetime(second, chars, offset);
+	}
+
+	/**
+	 * Write the date and time for the seconds since the epoch to the array.
+	 */
+	private static int writeDatetime(long second, char[] chars, int offset) {
+		checkPositionIndexes(offset, offset + DATETIME_LENGTH, chars.length);
+		int secondOfDay = (int) (second - floorDiv(second, 86400L) * 86400L);
+		System.arraycopy(day(second).mDate, 0, chars, offset, 10);
+		chars[offset + 10] = ' ';
+		writeTwoDigits(chars, offset + 11, secondOfDay / 3600);
+		chars[offset + 13] = ':';
+		writeTwoDigits(chars, offset + 14, secondOfDay / 60 % 60);
+		chars[offset + 16] = ':';
+		writeTwoDigits(chars, offset + 17, secondOfDay % 60);
+		return offset + DATETIME_LENGTH;
+	}
+
+	/**
+	 * Get the milliseconds since the epoch for the UTC date and time, in the format
+	 * {@code YYYY-MM-DD hh:mm:ss}, optionally followed by up to three digits of fractional seconds,
+	 * e.g. {@code .SSS}. A {@code T} may separate the date and time instead of a space. Dates are
+	 * in the proleptic Gregorian calendar, like SQLite's.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the datetime is not in the format
+	 * @since 4.1.0
+	 */
+	public static long parseDatetime(CharSequence datetime) {
+		int length = datetime.length();
+		checkArgument(length == DATETIME_LENGTH || length > DATETIME_LENGTH + 1
+				&& length <= DATETIME_LENGTH + 4 && datetime.charAt(DATETIME_LENGTH) == '.',
+				"invalid datetime: %s", datetime);
+		checkArgument(datetime.charAt(4) == '-' && datetime.charAt(7) == '-'
+				&& (datetime.charAt(10) == ' ' || datetime.charAt(10) == 'T')
+				&& datetime.charAt(13) == ':' && datetime.charAt(16) == ':', "invalid datetime: %s",
+				datetime);
+		int millis = 0;
+		for (int i = DATETIME_LENGTH + 1, scale = 100; i < length; i++, scale /= 10) {
+			millis += digit(datetime.charAt(i)) * scale;
+		}
+		return millis(digit(datetime.charAt(0)) * 1000 + digit(datetime.charAt(1)) * 100
+				+ digit(datetime.charAt(2)) * 10 + digit(datetime.charAt(3)),
+				digit(datetime.charAt(5)) * 10 + digit(datetime.charAt(6)),
+				digit(datetime.charAt(8)) * 10 + digit(datetime.charAt(9)),
+				digit(datetime.charAt(11)) * 10 + digit(datetime.charAt(12)),
+				digit(datetime.charAt(14)) * 10 + digit(datetime.charAt(15)),
+				digit(datetime.charAt(17)) * 10 + digit(datetime.charAt(18)), millis);
+	}
+
+	/**
+	 * Get the milliseconds since the epoch for the UTC date and time in ASCII bytes, in the same
+	 * formats as {@link #parseDatetime(CharSequence)}.
+	 *
+	 * @param offset
+	 *            index of the first byte
+	 * @param length
+	 *            number of bytes in the datetime
+	 * @throws IllegalArgumentException
+	 *             if the datetime is not in the format
+	 * @since 4.1.0
+	 */
+	public static long parseDatetime(byte[] datetime, int offset, int length) {
+		checkPositionIndexes(offset, offset + length, datetime.length);
+		byte[] b = datetime;
+		int o = offset;
+		checkArgument(length == DATETIME_LENGTH || length > DATETIME_LENGTH + 1
+				&& length <= DATETIME_LENGTH + 4 && b[o + DATETIME_LENGTH] == '.',
+				"invalid datetime at offset %s", offset);
+		checkArgument(b[o + 4] == '-' && b[o + 7] == '-' && (b[o + 10] == ' ' || b[o + 10] == 'T')
+				&& b[o + 13] == ':' && b[o + 16] == ':', "invalid datetime at offset %s", offset);
+		int millis = 0;
+		for (int i = DATETIME_LENGTH + 1, scale = 100; i < length; i++, scale /= 10) {
+			millis += digit(b[o + i]) * scale;
+		}
+		return millis(digit(b[o]) * 1000 + digit(b[o + 1]) * 100 + digit(b[o + 2]) * 10
+				+ digit(b[o + 3]), digit(b[o + 5]) * 10 + digit(b[o + 6]),
+				digit(b[o + 8]) * 10 + digit(b[o + 9]), digit(b[o + 11]) * 10 + digit(b[o + 12]),
+				digit(b[o + 14]) * 10 + digit(b[o + 15]), digit(b[o + 17]) * 10 + digit(b[o + 18]),
+				millis);
+	}
+
+	/**
+	 * {@link #parseDatetime(CharSequence) Parse} the datetimes, e.g. from
+	 * {@link Statements#allStrings(PreparedStatement)}.
+	 *
+	 * @param datetimes
+	 *            may contain nulls
+	 * @return {@link Long#MIN_VALUE} for nulls
+	 * @since 4.1.0
+	 */
+	public static long[] parseDatetimes(List<String> datetimes) {
+		int size = datetimes.size();
+		long[] millis = new long[size];
+		for (int i = 0; i < size; i++) {
+			String datetime = datetimes.get(i);
+			millis[i] = datetime != null ? parseDatetime(datetime) : Long.MIN_VALUE;
+		}
+		return millis;
+	}
+
+	private static int digit(int c) {
+		int digit = c - '0';
+		checkArgument(digit >= 0 && digit <= 9, "invalid datetime digit: %s", (char) c);
+		return digit;
+	}
+
+	/**
+	 * Get the milliseconds since the epoch for the date and time.
+	 */
+	private static long millis(int year, int month, int day, int hour, int minute, int second,
+			int millis) {
+		checkArgument(month >= 1 && month <= 12 && day >= 1 && day <= days(year, month)
+				&& hour <= 23 && minute <= 59 && second <= 59, "invalid datetime");
+		/* days_from_civil from http://howardhinnant.github.io/date_algorithms.html */
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yoe = y - era * 400; // [0, 399]
+		int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1; // [0, 365]
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy; // [0, 146096]
+		long days = era * 146097L + doe - 719468L;
+		return ((days * 24L + hour) * 60L + minute) * 60000L + second * 1000L + millis;
+	}
+
+	/**
+	 * Get the number of days in the month of the proleptic Gregorian year.
+	 */
+	private static int days(int year, int month) {
+		if (month == 2) {
+			return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+		}
+		return (month + month / 8) % 2 == 1 ? 31 : 30;
+	}
+
+	/**
+	 * Get the cached day or create a new one for the seconds since the epoch.
+	 */
+	private static Day day(long second) {
+		long day = floorDiv(second, 86400L);
+		Day cached = sDay;
+		if (cached == null || cached.mDay != day) {
+			/* civil_from_days from http://howardhinnant.github.io/date_algorithms.html */
+			long z = day + 719468L;
+			long era = floorDiv(z, 146097L);
+			int doe = (int) (z - era * 146097L); // [0, 146096]
+			int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365; // [0, 399]
+			int doy = doe - (365 * yoe + yoe / 4 - yoe / 100); // [0, 365]
+			int mp = (5 * doy + 2) / 153; // [0, 11]
+			int d = doy - (153 * mp + 2) / 5 + 1; // [1, 31]
+			int m = mp < 10 ? mp + 3 : mp - 9; // [1, 12]
+			int y = (int) (yoe + era * 400L) + (m <= 2 ? 1 : 0);
+			char[] date = new char[10];
+			writeTwoDigits(date, 0, y / 100);
+			writeTwoDigits(date, 2, y % 100);
+			date[4] = '-';
+			writeTwoDigits(date, 5, m);
+			date[7] = '-';
+			writeTwoDigits(date, 8, d);
+			cached = new Day(day, date);
+			sDay = cached;
+		}
+		return cached;
+	}
+
+	private static void writeTwoDigits(char[] chars, int offset, int i) {
+		chars[offset] = (char) ('0' + i / 10);
+		chars[offset + 1] = (char) ('0' + i % 10);
+	}
+
+	private static StringBuilder appendTwoDigits(StringBuilder s, int i) {
+		return s.append((char) ('0' + i / 10)).append((char) ('0' + i % 10));
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+	}
+
+	/**
+	 * Formats dates outside of the range that are calculated. Loaded on first use.
+	 */
+	private static class Fallback {
+		static final FastDateFormat FORMAT = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss",
+				TimeZone.getTimeZone("UTC"), US);
+	}
+
+	/**
+	 * Date of a day since the epoch. Immutable so that it can be shared between threads.
+	 */
+	private static class Day {
+		final long mDay;
+		/** Not modified after construction. */
+		final char[] mDate;
+
+		Day(long day, char[] date) {
+			mDay = day;
+			mDate = date;
 		}
-		return sFormat.format(millis);
 	}
 
-	private static Pattern sDiacritics;
+	/**
+	 * Date and time of a second since the epoch. Immutable so that it can be shared between
+	 * threads.
+	 */
+	private static class Second {
+		final long mSecond;
+		final String mValue;
+
+		Second(long second, String value) {
+			mSecond = second;
+			mValue = value;
+		}
+	}
 
 	/**
 	 * Remove diacritics from the string and convert it to upper case.
 	 */
 	public static String normalise(String s) {
-		if (sDiacritics == null) {
-			sDiacritics = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+		char[] chars = null; // normalised, if different
+		for (int i = 0, length = s.length(); i < length; i++) {
+			char c = s.charAt(i);
+			char n;
+			if (c < 0x80) {
+				n = c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+			} else {
+				n = c >= Latin.FIRST && c <= Latin.LAST ? Latin.CHARS[c - Latin.FIRST] : 0;
+				if (n == 0) { // not a single char
+					return Latin.normalise(s);
+				}
+			}
+			if (n != c && chars == null) {
+				chars = s.toCharArray();
+			}
+			if (chars != null) {
+				chars[i] = n;
+			}
+		}
+		return chars != null ? new String(chars) : s;
+	}
+
+	/**
+	 * {@link #normalise(String) Normalise} the strings. Results for strings with characters other
+	 * than ASCII are reused for repeated values, up to {@link #MAX_NORMALISED_VALUES} different
+	 * strings.
+	 *
+	 * @param strings
+	 *            may contain nulls, which are not changed
+	 * @return new array with the normalised strings
+	 * @since 4.1.0
+	 */
+	public static String[] normalise(String[] strings) {
+		String[] normalised = new String[strings.length];
+		Map<String, String> cache = null;
+		for (int i = 0; i < strings.length; i++) {
+			String s = strings[i];
+			if (s == null) {
+				continue;
+			}
+			if (isAscii(s)) {
+				normalised[i] = normalise(s);
+			} else {
+				if (cache == null) {
+					cache = new HashMap<>();
+				}
+				String n = cache.get(s);
+				if (n == null) {
+					n = normalise(s);
+					if (cache.size() < MAX_NORMALISED_VALUES) {
+						cache.put(s, n);
+					}
+				}
+				normalised[i] = n;
+			}
+		}
+		return normalised;
+	}
+
+	private static boolean isAscii(String s) {
+		for (int i = 0, length = s.length(); i < length; i++) {
+			if (s.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Normalised Latin-1 Supplement and Latin Extended-A characters. Loaded on first use.
+	 */
+	private static class Latin {
+		static final char FIRST = '\u00c0';
+		static final char LAST = '\u017f';
+		private static final Pattern DIACRITICS =
+				Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+		/** Normalised char for each char in the range, or 0 if it isn't a single char. */
+		static final char[] CHARS = new char[LAST - FIRST + 1];
+
+		static {
+			for (char c = FIRST; c <= LAST; c++) {
+				String n = normalise(String.valueOf(c));
+				if (n.length() == 1) {
+					CHARS[c - FIRST] = n.charAt(0);
+				}
+			}
+		}
+
+		static String normalise(String s) {
+			return DIACRITICS.matcher(Normalizer.normalize(s, NFD)).replaceAll("").toUpperCase(US);
 		}
-		return sDiacritics.matcher(Normalizer.normalize(s, NFD)).replaceAll("").toUpperCase(US);
 	}
 
 	/**
@@ -333,6 +773,239 @@ public class SQLite {
 				degree, longitude, longitudeColumn, latitudeCosineColumn, alias);
 	}
 
+	/**
+	 * <p>
+	 * Get a condition that is true for rows whose coordinates are in a box around the coordinates.
+	 * The box contains all points up to the radius away, as measured by
+	 * {@link #distance(String, String, String, double, double, MeasureUnit, String) distance}, so
+	 * it can be used to quickly exclude rows with an index on the latitude or longitude column
+	 * before the distance is calculated. The corners of the box are further away than the radius,
+	 * so rows may need to be filtered by distance too. For example:
+	 * </p>
+	 * <pre>{@code
+	 * String sql = "SELECT id, "
+	 *         + SQLite.distance("lat", "lon", "lat_cos", lat, lon, KILOMETER, "dist")
+	 *         + " FROM place WHERE " + SQLite.within("lat", "lon", lat, lon, 5.0, KILOMETER)
+	 *         + " AND dist <= 25.0 ORDER BY dist LIMIT 10"; // dist is squared
+	 * }</pre>
+	 * <p>
+	 * If the box includes a pole, it includes all longitudes. If it crosses the antimeridian, the
+	 * longitude condition wraps around to the other side.
+	 * </p>
+	 *
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @return e.g. lat BETWEEN 1.0 AND 2.0 AND lon BETWEEN 3.0 AND 4.0
+	 * @since 4.1.0
+	 */
+	public static StringBuilder within(String latitudeColumn, String longitudeColumn,
+			double latitude, double longitude, double radius, MeasureUnit unit) {
+		return within(latitudeColumn, longitudeColumn, latitude, longitude, radius, unit,
+				new StringBuilder(96));
+	}
+
+	/**
+	 * Append a condition that is true for rows whose coordinates are in a box around the
+	 * coordinates.
+	 *
+	 * @see #within(String, String, double, double, double, MeasureUnit)
+	 * @since 4.1.0
+	 */
+	public static StringBuilder within(String latitudeColumn, String longitudeColumn,
+			double latitude, double longitude, double radius, MeasureUnit unit, StringBuilder s) {
+		double[] box = Geos.box(latitude, longitude, radius, unit);
+		s.append(latitudeColumn).append(" BETWEEN ").append(box[0]).append(" AND ").append(box[1]);
+		if (box[2] > -180.0 || box[3] < 180.0) {
+			s.append(" AND ");
+			if (box[4] <= box[5]) { // wraps
+				s.append('(').append(longitudeColumn).append(" >= ").append(box[2]).append(" OR ")
+						.append(longitudeColumn).append(" <= ").append(box[5]).append(')');
+			} else {
+				s.append(longitudeColumn).append(" BETWEEN ").append(box[2]).append(" AND ")
+						.append(box[3]);
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Get an {@code IN} operator for the column and the geohashes of the cells that cover all
+	 * points up to the radius away from the coordinates. With an index on the column, nearby rows
+	 * are found without calculating the distance to each row. The cells extend beyond the radius,
+	 * so rows may need to be filtered by distance too.
+	 *
+	 * @param column
+	 *            contains the {@link Geos#geohash(double, double, int) geohash} of each row with
+	 *            the same number of bits
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @throws IllegalArgumentException
+	 *             if the radius needs more than {@link Geos#MAX_GEOHASH_CELLS} cells
+	 * @see Geos#geohashes(double, double, double, MeasureUnit, int)
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inGeohashes(String column, double latitude, double longitude,
+			double radius, MeasureUnit unit, int bits) {
+		return inGeohashes(column, latitude, longitude, radius, unit, bits, new StringBuilder(64));
+	}
+
+	/**
+	 * Append an {@code IN} operator for the column and the geohashes of the cells that cover all
+	 * points up to the radius away from the coordinates.
+	 *
+	 * @see #inGeohashes(String, double, double, double, MeasureUnit, int)
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inGeohashes(String column, double latitude, double longitude,
+			double radius, MeasureUnit unit, int bits, StringBuilder s) {
+		return in(column, Geos.geohashes(latitude, longitude, radius, unit, bits), s);
+	}
+
+	/**
+	 * Get a result column for the squared distance from the row coordinates to coordinates that
+	 * are bound as parameters. Unlike
+	 * {@link #distance(String, String, String, double, double, MeasureUnit, String) distance},
+	 * the SQL is the same for any coordinates, so statements that use it can be cached. Set the
+	 * coordinates with {@link #setDistanceParams(int, PreparedStatement, double, double)
+	 * setDistanceParams}.
+	 *
+	 * @param latitudeCosineColumn
+	 *            see {@link Geos#cos(double)}
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @param alias
+	 *            result column name
+	 * @return expression with {@link #DISTANCE_PARAMS} parameters
+	 * @since 4.1.0
+	 */
+	public static String distanceParams(String latitudeColumn, String longitudeColumn,
+			String latitudeCosineColumn, MeasureUnit unit, String alias) {
+		String degree = String.valueOf(unit == MILE ? LATITUDE_DEGREE_MI : LATITUDE_DEGREE_KM);
+		String latitude = '(' + degree + " * (? - " + latitudeColumn + "))";
+		String longitude = '(' + degree + " * (? - " + longitudeColumn + ") * "
+				+ latitudeCosineColumn + ')';
+		return latitude + " * " + latitude + " + " + longitude + " * " + longitude + " AS " + alias;
+	}
+
+	/**
+	 * Set the coordinates of a
+	 * {@link #distanceParams(String, String, String, MeasureUnit, String) distanceParams}
+	 * expression.
+	 *
+	 * @param index
+	 *            of the first distance parameter
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement setDistanceParams(int index, PreparedStatement stmt,
+			double latitude, double longitude) throws SQLException {
+		stmt.setDouble(index, latitude);
+		stmt.setDouble(index + 1, latitude);
+		stmt.setDouble(index + 2, longitude);
+		stmt.setDouble(index + 3, longitude);
+		return stmt;
+	}
+
+	/**
+	 * Get a condition that is true for rows whose coordinates are in a box whose edges are bound
+	 * as parameters. Unlike {@link #within(String, String, double, double, double, MeasureUnit)
+	 * within}, the SQL is the same for any box, so statements that use it can be cached. Set the
+	 * box with {@link #setWithinParams(int, PreparedStatement, double, double, double, MeasureUnit)
+	 * setWithinParams}.
+	 *
+	 * @return condition with {@link #WITHIN_PARAMS} parameters
+	 * @since 4.1.0
+	 */
+	public static String withinParams(String latitudeColumn, String longitudeColumn) {
+		return latitudeColumn + " BETWEEN ? AND ? AND (" + longitudeColumn + " BETWEEN ? AND ? OR "
+				+ longitudeColumn + " BETWEEN ? AND ?)";
+	}
+
+	/**
+	 * Set the box of a {@link #withinParams(String, String) withinParams} condition to contain all
+	 * points up to the radius away from the coordinates.
+	 *
+	 * @param index
+	 *            of the first box parameter
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement setWithinParams(int index, PreparedStatement stmt,
+			double latitude, double longitude, double radius, MeasureUnit unit)
+			throws SQLException {
+		double[] box = Geos.box(latitude, longitude, radius, unit);
+		for (int i = 0; i < box.length; i++) {
+			stmt.setDouble(index + i, box[i]);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Execute the {@link PreparedStatement#addBatch() batches} of the insert statement, get the
+	 * rowids of all of the inserted rows, and close the statement. SQLite only provides the rowid
+	 * of the last inserted row, so the others are calculated from it. This is correct when SQLite
+	 * chooses each rowid, as it assigns one more than the largest existing rowid while the
+	 * transaction prevents other inserts from interleaving. Batches that don't insert exactly one
+	 * row, like an {@code INSERT OR IGNORE} of an existing row, would make the calculated rowids
+	 * wrong, so they cause an exception instead and the caller should roll back the transaction.
+	 *
+	 * @param stmt
+	 *            must have been created with {@link Statement#RETURN_GENERATED_KEYS}, already have
+	 *            batches added that each insert one row without specifying the rowid, and be on a
+	 *            connection that is not in auto-commit mode
+	 * @return rowids in the order that the rows were added
+	 * @throws SQLException
+	 *             if a batch did not insert exactly one row
+	 * @since 4.1.0
+	 */
+	public static long[] allRowIds(PreparedStatement stmt) throws SQLException {
+		return allRowIds(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #allRowIds(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static long[] allRowIds(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		int rows;
+		long last;
+		long start = Statements.start();
+		try {
+			checkState(!stmt.getConnection().getAutoCommit(),
+					"connection must be in a transaction");
+			int[] counts = stmt.executeBatch();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] != 1) {
+					throw new SQLException("batch " + i + " inserted " + counts[i]
+							+ " rows instead of 1");
+				}
+			}
+			rows = counts.length;
+			ResultSet rs = stmt.getGeneratedKeys();
+			last = rs.next() ? rs.getLong(1) : 0L;
+			Statements.close(stmt, rs, cache, start, rows);
+		} catch (SQLException | RuntimeException e) {
+			Statements.failed(stmt, cache, start, e);
+			throw e;
+		}
+		long[] ids = new long[last > 0L ? rows : 0];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = last - ids.length + 1 + i;
+		}
+		return ids;
+	}
+
 	/**
 	 * Get an {@code IN} operator for the column and values.
 	 *
@@ -375,6 +1048,200 @@ public class SQLite {
 		return in(column, null, values, s);
 	}
 
+	/**
+	 * Get an {@link #inRanges(String, long[], int, StringBuilder) inRanges} operator for runs of at
+	 * least {@link #MIN_RANGE_LENGTH} consecutive values.
+	 *
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inRanges(String column, long[] values) {
+		return inRanges(column, values, MIN_RANGE_LENGTH, new StringBuilder(64));
+	}
+
+	/**
+	 * Append an {@link #inRanges(String, long[], int, StringBuilder) inRanges} operator for runs of
+	 * at least {@link #MIN_RANGE_LENGTH} consecutive values.
+	 *
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inRanges(String column, long[] values, StringBuilder s) {
+		return inRanges(column, values, MIN_RANGE_LENGTH, s);
+	}
+
+	/**
+	 * Append an operator that is true when the column equals any of the values, like
+	 * {@link #in(String, long[], StringBuilder) in}, but with {@code BETWEEN} ranges for runs of
+	 * consecutive values. The values are sorted and duplicates are removed, without changing the
+	 * array. Ranges can use an index range scan instead of a lookup for each value, and are
+	 * shorter for dense values, e.g. ids.
+	 *
+	 * @param minRun
+	 *            minimum number of consecutive values to put in a range, at least 2
+	 * @return e.g. (column BETWEEN 1 AND 500 OR column BETWEEN 600 AND 700 OR column IN (3,9))
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inRanges(String column, long[] values, int minRun,
+			StringBuilder s) {
+		checkArgument(minRun >= 2, "minRun must be at least 2");
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int length = sorted.length;
+		/* collect single values in the front of the array, after ranges are appended */
+		int singles = 0;
+		int terms = 0;
+		int start = s.length();
+		for (int i = 0; i < length;) {
+			int end = i + 1; // exclusive, of the run
+			int distinct = 1;
+			/* subtracting could overflow */
+			while (end < length && (sorted[end] == sorted[end - 1]
+					|| sorted[end - 1] != Long.MAX_VALUE && sorted[end] == sorted[end - 1] + 1L)) {
+				if (sorted[end] != sorted[end - 1]) {
+					distinct++;
+				}
+				end++;
+			}
+			if (distinct >= minRun) {
+				s.append(terms++ > 0 ? " OR " : "").append(column).append(" BETWEEN ")
+						.append(sorted[i]).append(" AND ").append(sorted[end - 1]);
+			} else {
+				for (int j = i; j < end; j++) {
+					if (j == i || sorted[j] != sorted[j - 1]) {
+						sorted[singles++] = sorted[j];
+					}
+				}
+			}
+			i = end;
+		}
+		if (singles > 0 || terms == 0) {
+			s.append(terms++ > 0 ? " OR " : "");
+			in(column, Arrays.copyOf(sorted, singles), null, s);
+		}
+		if (terms > 1) {
+			s.insert(start, '(').append(')');
+		}
+		return s;
+	}
+
+	/**
+	 * Get an {@code IN} operator for the column and a number of parameters. Unlike the operators
+	 * with values, the SQL is the same for any values of the same length, so statements that use
+	 * it can be cached.
+	 *
+	 * @param params
+	 *            up to {@link #MAX_VARIABLE_NUMBER}
+	 * @return column IN (?,...,?)
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inParams(String column, int params) {
+		return inParams(column, params, new StringBuilder(column.length() + params * 2 + 6));
+	}
+
+	/**
+	 * Append an {@code IN} operator for the column and a number of parameters. Unlike the
+	 * operators with values, the SQL is the same for any values of the same length, so statements
+	 * that use it can be cached.
+	 *
+	 * @param params
+	 *            up to {@link #MAX_VARIABLE_NUMBER}
+	 * @return column IN (?,...,?)
+	 * @since 4.1.0
+	 */
+	public static StringBuilder inParams(String column, int params, StringBuilder s) {
+		checkArgument(params >= 0 && params <= MAX_VARIABLE_NUMBER,
+				"params must be between 0 and " + MAX_VARIABLE_NUMBER);
+		s.append(column).append(" IN (");
+		for (int i = 0; i < params; i++) {
+			s.append(i > 0 ? ",?" : "?");
+		}
+		return s.append(')');
+	}
+
+	/**
+	 * <p>
+	 * Execute the query with the values bound as parameters and get the long values in the first
+	 * column of the result sets. Duplicate values are only queried once. Up to
+	 * {@link #MAX_CHUNKED_VALUES} distinct values are queried in chunks of
+	 * {@link #MAX_VARIABLE_NUMBER} parameters, so that all but the last chunk use the same
+	 * statement. More values are inserted into a temporary table that the query then selects
+	 * from. For example:
+	 * </p>
+	 * <pre>{@code
+	 * long[] nameIds = SQLite.allLongsIn(cache, "SELECT name_id FROM person WHERE %s",
+	 *         "person_id", personIds);
+	 * }</pre>
+	 *
+	 * @param sql
+	 *            query with {@code %s} where the {@code IN} operator should be, and no other
+	 *            parameters
+	 * @param column
+	 *            compared to the values
+	 * @return values from the results of the chunk with the smallest values, followed by those
+	 *         from the chunk with the next smallest values, and so on
+	 * @since 4.1.0
+	 */
+	public static long[] allLongsIn(StatementCache cache, String sql, String column,
+			long[] values) throws SQLException {
+		int i = sql.indexOf("%s");
+		checkArgument(i >= 0, "sql must contain %s");
+		String prefix = sql.substring(0, i);
+		String suffix = sql.substring(i + 2);
+		long[] distinct = values.clone();
+		Arrays.sort(distinct);
+		int length = 0;
+		for (int j = 0; j < distinct.length; j++) {
+			if (j == 0 || distinct[j] != distinct[length - 1]) {
+				distinct[length++] = distinct[j];
+			}
+		}
+		LongArray all = new LongArray(length);
+		if (length <= MAX_CHUNKED_VALUES) {
+			String full = null; // SQL for chunks with the maximum number of parameters
+			for (int from = 0; from < length; from += MAX_VARIABLE_NUMBER) {
+				int params = Math.min(length - from, MAX_VARIABLE_NUMBER);
+				String chunk;
+				if (params < MAX_VARIABLE_NUMBER) {
+					chunk = inParams(prefix, column, params, suffix);
+				} else {
+					if (full == null) {
+						full = inParams(prefix, column, params, suffix);
+					}
+					chunk = full;
+				}
+				PreparedStatement stmt = cache.prepare(chunk);
+				Statements.allLongs(Statements.setLongs(1, stmt, distinct, from, params), all,
+						cache);
+			}
+		} else {
+			Connection con = cache.getConnection();
+			try (Statement stmt = con.createStatement()) {
+				stmt.execute("CREATE TEMP TABLE IF NOT EXISTS " + IN_TABLE
+						+ " (value INTEGER PRIMARY KEY)");
+			}
+			/* rows from a failed insert would remain if the caller's transaction continues */
+			try {
+				try (BatchWriter writer = new BatchWriter(
+						con.prepareStatement("INSERT INTO " + IN_TABLE + " VALUES (?)"))) {
+					for (int j = 0; j < length; j++) {
+						writer.setLongs(distinct[j]).addBatch();
+					}
+					writer.finish();
+				}
+				Statements.allLongs(cache.prepare(prefix + column + " IN (SELECT value FROM "
+						+ IN_TABLE + ')' + suffix), all, cache);
+			} finally {
+				Statements.update(cache.prepare("DELETE FROM " + IN_TABLE), cache);
+			}
+		}
+		return all.toArray();
+	}
+
+	private static String inParams(String prefix, String column, int params, String suffix) {
+		StringBuilder s = new StringBuilder(prefix.length() + column.length() + params * 2
+				+ suffix.length() + 6).append(prefix);
+		return inParams(column, params, s).append(suffix).toString();
+	}
+
 	private static StringBuilder in(String column, long[] longValues, String[] stringValues,
 			StringBuilder s) {
 		s.append(column).append(" IN (");
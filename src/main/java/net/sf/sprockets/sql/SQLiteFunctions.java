@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.sqlite.Function;
+
+import net.sf.sprockets.util.Geos;
+import net.sf.sprockets.util.MeasureUnit;
+
+/**
+ * <p>
+ * Geographical functions that are implemented in Java and can be registered on connections from
+ * the <a href="https://github.com/xerial/sqlite-jdbc" target="_blank">SQLite JDBC driver</a>, which
+ * must be on the classpath. With the functions, queries can order and limit rows by their actual
+ * distance instead of reading all of the rows that might be close enough. For example:
+ * </p>
+ * <pre>{@code
+ * SQLiteFunctions.register(con);
+ * PreparedStatement stmt = con.prepareStatement("SELECT id, "
+ *         + SQLiteFunctions.distanceParams("lat", "lon", KILOMETER, "dist") + " FROM place WHERE "
+ *         + SQLite.withinParams("lat", "lon") + " AND dist <= ? ORDER BY dist LIMIT 10");
+ * SQLiteFunctions.setDistanceParams(1, stmt, lat, lon);
+ * SQLite.setWithinParams(3, stmt, lat, lon, 5.0, KILOMETER).setDouble(9, 5.0);
+ * }</pre>
+ * <p>
+ * The functions return NULL if any of their arguments are NULL.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class SQLiteFunctions {
+	/** sqrt(x): square root of the number. */
+	public static final String SQRT = "sqrt";
+
+	/**
+	 * distance_km(lat1, lon1, lat2, lon2): {@link Geos#distance(double, double, double, double,
+	 * MeasureUnit) Great-circle distance} between the coordinates in kilometres.
+	 */
+	public static final String DISTANCE_KM = "distance_km";
+
+	/**
+	 * distance_mi(lat1, lon1, lat2, lon2): {@link Geos#distance(double, double, double, double,
+	 * MeasureUnit) Great-circle distance} between the coordinates in miles.
+	 */
+	public static final String DISTANCE_MI = "distance_mi";
+
+	/** lat_cos(lat): {@link Geos#cos(double) Cosine} of the latitude. */
+	public static final String LAT_COS = "lat_cos";
+
+	/** SQLITE_NULL datatype code. */
+	private static final int NULL = 5;
+
+	private SQLiteFunctions() {
+	}
+
+	/**
+	 * Register the functions on the connection. They are available until the connection is
+	 * closed.
+	 *
+	 * @param con
+	 *            from the SQLite JDBC driver
+	 */
+	public static void register(Connection con) throws SQLException {
+		Function.create(con, SQRT, new DoubleFunction(SQRT, 1) {
+			@Override
+			double apply(double[] args) {
+				return Math.sqrt(args[0]);
+			}
+		});
+		Function.create(con, DISTANCE_KM, new Distance(DISTANCE_KM, KILOMETER));
+		Function.create(con, DISTANCE_MI, new Distance(DISTANCE_MI, MILE));
+		Function.create(con, LAT_COS, new DoubleFunction(LAT_COS, 1) {
+			@Override
+			double apply(double[] args) {
+				return Geos.cos(args[0]);
+			}
+		});
+	}
+
+	/**
+	 * Get a result column for the distance from the row coordinates to coordinates that are bound
+	 * as parameters. Set the coordinates with
+	 * {@link #setDistanceParams(int, PreparedStatement, double, double) setDistanceParams}.
+	 *
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @param alias
+	 *            result column name
+	 * @return e.g. distance_km(?, ?, lat, lon) AS dist
+	 */
+	public static String distanceParams(String latitudeColumn, String longitudeColumn,
+			MeasureUnit unit, String alias) {
+		return (unit == MILE ? DISTANCE_MI : DISTANCE_KM) + "(?, ?, " + latitudeColumn + ", "
+				+ longitudeColumn + ") AS " + alias;
+	}
+
+	/**
+	 * Set the coordinates of a
+	 * {@link #distanceParams(String, String, MeasureUnit, String) distanceParams} expression.
+	 *
+	 * @param index
+	 *            of the first distance parameter
+	 */
+	public static PreparedStatement setDistanceParams(int index, PreparedStatement stmt,
+			double latitude, double longitude) throws SQLException {
+		stmt.setDouble(index, latitude);
+		stmt.setDouble(index + 1, longitude);
+		return stmt;
+	}
+
+	/**
+	 * Function of a fixed number of REAL arguments that returns a REAL.
+	 */
+	private abstract static class DoubleFunction extends Function {
+		private final String mName;
+		private final double[] mArgs;
+
+		DoubleFunction(String name, int args) {
+			mName = name;
+			mArgs = new double[args];
+		}
+
+		@Override
+		protected void xFunc() throws SQLException {
+			if (args() != mArgs.length) {
+				error(mName + " requires " + mArgs.length + " arguments");
+				return;
+			}
+			for (int i = 0; i < mArgs.length; i++) {
+				if (value_type(i) == NULL) {
+					result();
+					return;
+				}
+				mArgs[i] = value_double(i);
+			}
+			result(apply(mArgs));
+		}
+
+		abstract double apply(double[] args);
+	}
+
+	/**
+	 * Great-circle distance between two coordinates.
+	 */
+	private static class Distance extends DoubleFunction {
+		private final MeasureUnit mUnit;
+
+		Distance(String name, MeasureUnit unit) {
+			super(name, 4);
+			mUnit = unit;
+		}
+
+		@Override
+		double apply(double[] args) {
+			return Geos.distance(args[0], args[1], args[2], args[3], mUnit);
+		}
+	}
+}
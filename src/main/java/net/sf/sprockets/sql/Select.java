@@ -0,0 +1,347 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * <p>
+ * SELECT statement whose SQL is built once and reused. The result columns can be any expressions,
+ * such as those from {@link SQLite#alias(String) SQLite}, which are only built when the Select
+ * is. Create a Select once, e.g. in a constant, and only bind the parameters each time that it is
+ * executed. For example:
+ * </p>
+ * <pre>{@code
+ * static final Select NAMES = new Select.Builder()
+ *         .columns(SQLite.alias("p.name"), SQLite.count("v.id", "visits"))
+ *         .from("person p JOIN visit v ON v.person_id = p.id")
+ *         .where("v.created >= ?").whereIn("p.id").groupBy("p.id").orderBy("visits DESC")
+ *         .build();
+ *
+ * PreparedStatement stmt = NAMES.prepare(cache, ids.length);
+ * stmt.setLong(1, since);
+ * Statements.setLongs(NAMES.getInIndex(), stmt, ids);
+ * }</pre>
+ * <p>
+ * If the Select has a {@link Builder#whereIn(String) whereIn} column, the SQL for each number of
+ * IN parameters is cached, up to {@link #MAX_IN_SHAPES} of them. Selects are immutable and can be
+ * shared between threads.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class Select {
+	/** Maximum number of IN parameter counts whose SQL is cached for each Select. */
+	public static final int MAX_IN_SHAPES = 64;
+
+	/** SQL before any IN parameters. */
+	private final String mPrefix;
+	/** SQL after any IN parameters. */
+	@Nullable
+	private final String mSuffix;
+	private final int mInIndex;
+	@Nullable
+	private final LoadingCache<Integer, String> mSqls;
+
+	private Select(Builder builder) {
+		StringBuilder s = new StringBuilder(256).append("SELECT ");
+		if (builder.mDistinct) {
+			s.append("DISTINCT ");
+		}
+		Joiner commas = Joiner.on(", ");
+		commas.appendTo(s, builder.mColumns).append(" FROM ").append(builder.mFrom);
+		int terms = builder.mWheres.size() + (builder.mInColumn != null ? 1 : 0);
+		boolean wrap = terms > 1; // so that e.g. an OR in a condition doesn't include the others
+		if (terms > 0) {
+			s.append(" WHERE ");
+			for (int i = 0; i < builder.mWheres.size(); i++) {
+				if (i > 0) {
+					s.append(" AND ");
+				}
+				String where = builder.mWheres.get(i);
+				if (wrap) {
+					s.append('(').append(where).append(')');
+				} else {
+					s.append(where);
+				}
+			}
+			if (builder.mInColumn != null) {
+				if (!builder.mWheres.isEmpty()) {
+					s.append(" AND ");
+				}
+				if (wrap) {
+					s.append('(');
+				}
+				s.append(builder.mInColumn).append(" IN (");
+			}
+		}
+		int inIndex = params(s) + 1;
+		String prefix = null;
+		if (builder.mInColumn != null) {
+			prefix = s.toString();
+			s.setLength(0);
+			s.append(wrap ? "))" : ")");
+		}
+		if (!builder.mGroupBys.isEmpty()) {
+			commas.appendTo(s.append(" GROUP BY "), builder.mGroupBys);
+		}
+		if (builder.mHaving != null) {
+			s.append(" HAVING ").append(builder.mHaving);
+		}
+		if (!builder.mOrderBys.isEmpty()) {
+			commas.appendTo(s.append(" ORDER BY "), builder.mOrderBys);
+		}
+		if (builder.mLimit) {
+			s.append(" LIMIT ?");
+		}
+		if (prefix != null) {
+			mPrefix = prefix;
+			mSuffix = s.toString();
+			mInIndex = inIndex;
+			mSqls = CacheBuilder.newBuilder().maximumSize(MAX_IN_SHAPES)
+					.build(new CacheLoader<Integer, String>() {
+						@Override
+						public String load(Integer params) {
+							return build(params);
+						}
+					});
+		} else {
+			mPrefix = s.toString();
+			mSuffix = null;
+			mInIndex = 0;
+			mSqls = null;
+		}
+	}
+
+	/**
+	 * Get the number of parameters in the SQL, ignoring any question marks in string literals,
+	 * quoted identifiers, and comments.
+	 */
+	private static int params(CharSequence sql) {
+		int params = 0;
+		for (int i = 0, length = sql.length(); i < length; i++) {
+			char c = sql.charAt(i);
+			switch (c) {
+			case '?':
+				params++;
+				break;
+			case '\'':
+			case '"':
+			case '`':
+			case '[':
+				char end = c == '[' ? ']' : c;
+				do { // an escaped quote is doubled, so it ends and starts another quoted part
+					i++;
+				} while (i < length && sql.charAt(i) != end);
+				break;
+			case '-':
+				if (i + 1 < length && sql.charAt(i + 1) == '-') {
+					do {
+						i++;
+					} while (i < length && sql.charAt(i) != '\n');
+				}
+				break;
+			case '/':
+				if (i + 1 < length && sql.charAt(i + 1) == '*') {
+					i += 2;
+					while (i + 1 < length && !(sql.charAt(i) == '*' && sql.charAt(i + 1) == '/')) {
+						i++;
+					}
+					i++; // to the end of the comment
+				}
+				break;
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * Build the SQL with the number of IN parameters.
+	 */
+	private String build(int params) {
+		StringBuilder s = new StringBuilder(mPrefix.length() + params * 2 + mSuffix.length())
+				.append(mPrefix);
+		for (int i = 0; i < params; i++) {
+			s.append(i > 0 ? ",?" : "?");
+		}
+		return s.append(mSuffix).toString();
+	}
+
+	/**
+	 * Get the SQL.
+	 *
+	 * @throws IllegalStateException
+	 *             if the Select has a {@link Builder#whereIn(String) whereIn} column
+	 */
+	public String sql() {
+		checkState(mSqls == null, "number of IN parameters is required");
+		return mPrefix;
+	}
+
+	/**
+	 * Get the SQL with the number of IN parameters.
+	 *
+	 * @throws IllegalStateException
+	 *             if the Select doesn't have a {@link Builder#whereIn(String) whereIn} column
+	 */
+	public String sql(int inParams) {
+		checkState(mSqls != null, "Select does not have an IN column");
+		checkArgument(inParams >= 0, "inParams must not be negative");
+		return mSqls.getUnchecked(inParams);
+	}
+
+	/**
+	 * Get the index of the first IN parameter, which follows any parameters in the result columns
+	 * and {@link Builder#where(String) where} conditions. Any {@link Builder#having(String) having}
+	 * and {@link Builder#limit() limit} parameters follow the IN parameters.
+	 *
+	 * @return 0 if the Select doesn't have a {@link Builder#whereIn(String) whereIn} column
+	 */
+	public int getInIndex() {
+		return mInIndex;
+	}
+
+	/**
+	 * Get a statement for the {@link #sql() SQL} from the cache.
+	 */
+	public PreparedStatement prepare(StatementCache cache) throws SQLException {
+		return cache.prepare(sql());
+	}
+
+	/**
+	 * Get a statement for the {@link #sql(int) SQL} with the number of IN parameters from the
+	 * cache.
+	 */
+	public PreparedStatement prepare(StatementCache cache, int inParams) throws SQLException {
+		return cache.prepare(sql(inParams));
+	}
+
+	@Override
+	public String toString() {
+		return mSqls == null ? mPrefix : mPrefix + "..." + mSuffix;
+	}
+
+	/**
+	 * Builds a {@link Select}. Clauses can be added in any order.
+	 */
+	public static class Builder {
+		private boolean mDistinct;
+		private final List<String> mColumns = new ArrayList<>();
+		private String mFrom;
+		private final List<String> mWheres = new ArrayList<>();
+		private String mInColumn;
+		private final List<String> mGroupBys = new ArrayList<>();
+		private String mHaving;
+		private final List<String> mOrderBys = new ArrayList<>();
+		private boolean mLimit;
+
+		/**
+		 * Only select distinct rows.
+		 */
+		public Builder distinct() {
+			mDistinct = true;
+			return this;
+		}
+
+		/**
+		 * Add the result columns.
+		 */
+		public Builder columns(String... columns) {
+			Collections.addAll(mColumns, columns);
+			return this;
+		}
+
+		/**
+		 * Select from the table, which can include joins.
+		 */
+		public Builder from(String table) {
+			mFrom = table;
+			return this;
+		}
+
+		/**
+		 * Add a condition that rows must meet. Conditions are combined with {@code AND}, and each
+		 * is put in parentheses when there are more than one.
+		 */
+		public Builder where(String condition) {
+			mWheres.add(condition);
+			return this;
+		}
+
+		/**
+		 * Add a condition that the column is in a list of parameters. The number of parameters is
+		 * specified when the SQL is {@link Select#sql(int) requested}.
+		 */
+		public Builder whereIn(String column) {
+			mInColumn = column;
+			return this;
+		}
+
+		/**
+		 * Add the grouping columns.
+		 */
+		public Builder groupBy(String... columns) {
+			Collections.addAll(mGroupBys, columns);
+			return this;
+		}
+
+		/**
+		 * Set the condition that groups must meet.
+		 */
+		public Builder having(String condition) {
+			mHaving = condition;
+			return this;
+		}
+
+		/**
+		 * Add the ordering terms.
+		 */
+		public Builder orderBy(String... terms) {
+			Collections.addAll(mOrderBys, terms);
+			return this;
+		}
+
+		/**
+		 * End with a {@code LIMIT ?} parameter.
+		 */
+		public Builder limit() {
+			mLimit = true;
+			return this;
+		}
+
+		public Select build() {
+			checkState(!mColumns.isEmpty(), "columns are required");
+			checkState(mFrom != null, "from is required");
+			return new Select(this);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.sql.Statement.NO_GENERATED_KEYS;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Keeps prepared statements open for reuse on a connection, so that the same SQL doesn't need to
+ * be prepared again each time it is executed. Statements are checked out with
+ * {@link #prepare(String) prepare} and returned with {@link #release(PreparedStatement) release},
+ * which the {@link Statements} methods that accept a cache do instead of closing the statement.
+ * For example:
+ * </p>
+ * <pre>{@code
+ * StatementCache cache = new StatementCache(con, 32);
+ * long id = Statements.firstLong(Statements.setStrings(cache.prepare(sql), name), cache);
+ * }</pre>
+ * <p>
+ * When more than the maximum number of statements are released, the least recently used
+ * statement is closed. A statement that is prepared again while it is still checked out is
+ * prepared anew, so nested use of the same SQL is safe. Like the connection, a cache should only
+ * be used by one thread at a time.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class StatementCache implements AutoCloseable {
+	private final Connection mCon;
+	private final int mMaxSize;
+	/** Released statements, in least recently used order. */
+	private final LinkedHashMap<Key, PreparedStatement> mIdle = new LinkedHashMap<>();
+	private final Map<PreparedStatement, Key> mInUse = new IdentityHashMap<>();
+	private long mHits;
+	private long mMisses;
+	private long mEvictions;
+
+	/**
+	 * @param maxSize
+	 *            maximum number of released statements to keep open
+	 */
+	public StatementCache(Connection con, int maxSize) {
+		checkArgument(maxSize > 0, "maxSize must be greater than zero");
+		mCon = con;
+		mMaxSize = maxSize;
+	}
+
+	/**
+	 * Get the connection that statements are prepared on.
+	 */
+	public Connection getConnection() {
+		return mCon;
+	}
+
+	/**
+	 * Get a cached statement for the SQL or prepare a new one.
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		return prepare(sql, NO_GENERATED_KEYS);
+	}
+
+	/**
+	 * Get a cached statement for the SQL or prepare a new one.
+	 *
+	 * @param autoGeneratedKeys
+	 *            {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+	 */
+	public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+		Key key = new Key(sql, autoGeneratedKeys);
+		PreparedStatement stmt = mIdle.remove(key);
+		if (stmt != null) {
+			mHits++;
+		} else {
+			mMisses++;
+			stmt = autoGeneratedKeys == NO_GENERATED_KEYS ? mCon.prepareStatement(sql)
+					: mCon.prepareStatement(sql, autoGeneratedKeys);
+			QueryStats stats = Statements.getQueryStats();
+			if (stats != null) {
+				stats.register(stmt, sql);
+			}
+		}
+		mInUse.put(stmt, key);
+		return stmt;
+	}
+
+	/**
+	 * Clear the statement's parameters and keep it open for reuse. If the statement was not
+	 * {@link #prepare(String) prepared} by this cache, or the same SQL has already been released,
+	 * it is closed instead. Any result set from the statement should be closed first.
+	 */
+	public void release(PreparedStatement stmt) throws SQLException {
+		Key key = mInUse.remove(stmt);
+		if (key == null || mIdle.containsKey(key)) {
+			stmt.close();
+			return;
+		}
+		stmt.clearParameters();
+		mIdle.put(key, stmt);
+		if (mIdle.size() > mMaxSize) {
+			Iterator<PreparedStatement> eldest = mIdle.values().iterator();
+			PreparedStatement evicted = eldest.next();
+			eldest.remove();
+			mEvictions++;
+			evicted.close();
+		}
+	}
+
+	/**
+	 * Close the statement instead of keeping it for reuse, such as after its execution failed.
+	 */
+	void discard(PreparedStatement stmt) throws SQLException {
+		mInUse.remove(stmt);
+		stmt.close();
+	}
+
+	/**
+	 * Get the number of released statements that are open for reuse.
+	 */
+	public int size() {
+		return mIdle.size();
+	}
+
+	/**
+	 * Get the number of times that a cached statement was reused.
+	 */
+	public long getHitCount() {
+		return mHits;
+	}
+
+	/**
+	 * Get the number of times that a statement needed to be prepared.
+	 */
+	public long getMissCount() {
+		return mMisses;
+	}
+
+	/**
+	 * Get the number of statements that were closed to stay within the maximum size.
+	 */
+	public long getEvictionCount() {
+		return mEvictions;
+	}
+
+	/**
+	 * Close all cached statements and any that are still checked out. The connection is not
+	 * closed.
+	 */
+	@Override
+	public void close() throws SQLException {
+		List<PreparedStatement> stmts = new ArrayList<>(mIdle.values());
+		stmts.addAll(mInUse.keySet());
+		mIdle.clear();
+		mInUse.clear();
+		SQLException e = null;
+		for (PreparedStatement stmt : stmts) {
+			try {
+				stmt.close();
+			} catch (SQLException ex) {
+				if (e == null) {
+					e = ex;
+				} else {
+					e.addSuppressed(ex);
+				}
+			}
+		}
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Identifies statements that can be used interchangeably.
+	 */
+	private static class Key {
+		private final String mSql;
+		private final int mAutoGeneratedKeys;
+
+		Key(String sql, int autoGeneratedKeys) {
+			mSql = sql;
+			mAutoGeneratedKeys = autoGeneratedKeys;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * mSql.hashCode() + mAutoGeneratedKeys;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) obj;
+			return mSql.equals(key.mSql) && mAutoGeneratedKeys == key.mAutoGeneratedKeys;
+		}
+	}
+}
@@ -17,10 +17,21 @@
 
 package net.sf.sprockets.sql;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.nio.ByteOrder.nativeOrder;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
 import static java.util.Collections.EMPTY_LIST;
 import static org.apache.commons.lang3.ArrayUtils.EMPTY_INT_ARRAY;
 import static org.apache.commons.lang3.ArrayUtils.EMPTY_LONG_ARRAY;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -33,15 +44,57 @@ import javax.annotation.Nullable;
 import org.apache.commons.collections.primitives.ArrayIntList;
 import org.apache.commons.collections.primitives.ArrayLongList;
 
+import net.sf.sprockets.util.DoubleArray;
+import net.sf.sprockets.util.IntArray;
+import net.sf.sprockets.util.LongArray;
+
 /**
  * Utility methods for working with Statements.
  *
  * @since 1.1.0
  */
 public class Statements {
+	/**
+	 * Maximum number of values that can be {@link #mapLongs(PreparedStatement) mapped}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MAX_MAPPED_LONGS = Integer.MAX_VALUE / 8;
+
+	/** Number of bytes that a mapped file is extended by when it is full. */
+	private static final long MAP_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/** {@link #start()} value when stats are not being recorded. */
+	private static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private static volatile QueryStats sStats;
+
 	private Statements() {
 	}
 
+	/**
+	 * Record the execution of statements by the methods in this class, and {@link SQLite}, in the
+	 * stats.
+	 *
+	 * @param stats
+	 *            null to stop recording
+	 * @since 4.1.0
+	 */
+	public static void setQueryStats(@Nullable QueryStats stats) {
+		sStats = stats;
+	}
+
+	/**
+	 * Get the stats that statement executions are being recorded in.
+	 *
+	 * @return null if executions are not being recorded
+	 * @since 4.1.0
+	 */
+	@Nullable
+	public static QueryStats getQueryStats() {
+		return sStats;
+	}
+
 	/**
 	 * Set the statement parameters, starting at 1, in the order of the params.
 	 *
@@ -59,7 +112,10 @@ public class Statements {
 	 */
 	public static PreparedStatement setInts(int index, PreparedStatement stmt, int... params)
 			throws SQLException {
-		return set(index, stmt, params, null, null);
+		for (int i = 0; i < params.length; i++) {
+			stmt.setInt(index + i, params[i]);
+		}
+		return stmt;
 	}
 
 	/**
@@ -79,7 +135,27 @@ public class Statements {
 	 */
 	public static PreparedStatement setLongs(int index, PreparedStatement stmt, long... params)
 			throws SQLException {
-		return set(index, stmt, null, params, null);
+		for (int i = 0; i < params.length; i++) {
+			stmt.setLong(index + i, params[i]);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Set the statement parameters, starting at the index, in the order of the params from the
+	 * offset.
+	 *
+	 * @param length
+	 *            number of params to set
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement setLongs(int index, PreparedStatement stmt, long[] params,
+			int offset, int length) throws SQLException {
+		checkPositionIndexes(offset, offset + length, params.length);
+		for (int i = 0; i < length; i++) {
+			stmt.setLong(index + i, params[offset + i]);
+		}
+		return stmt;
 	}
 
 	/**
@@ -99,24 +175,112 @@ public class Statements {
 	 */
 	public static PreparedStatement setStrings(int index, PreparedStatement stmt, String... params)
 			throws SQLException {
-		return set(index, stmt, null, null, params);
+		for (int i = 0; i < params.length; i++) {
+			stmt.setString(index + i, params[i]);
+		}
+		return stmt;
 	}
 
-	private static PreparedStatement set(int index, PreparedStatement stmt, int[] ints,
-			long[] longs, String[] strings) throws SQLException {
-		int length = ints != null ? ints.length : longs != null ? longs.length : strings.length;
+	/**
+	 * Set the statement parameters, starting at the index, in the order of the params from the
+	 * offset.
+	 *
+	 * @param length
+	 *            number of params to set
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement setStrings(int index, PreparedStatement stmt, String[] params,
+			int offset, int length) throws SQLException {
+		checkPositionIndexes(offset, offset + length, params.length);
 		for (int i = 0; i < length; i++) {
-			if (ints != null) {
-				stmt.setInt(index + i, ints[i]);
-			} else if (longs != null) {
-				stmt.setLong(index + i, longs[i]);
-			} else {
-				stmt.setString(index + i, strings[i]);
+			stmt.setString(index + i, params[offset + i]);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Set the statement parameters from each row and {@link PreparedStatement#addBatch() add} them
+	 * as a batch.
+	 *
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement addBatches(PreparedStatement stmt, int[][] rows)
+			throws SQLException {
+		for (int[] row : rows) {
+			for (int i = 0; i < row.length; i++) {
+				stmt.setInt(i + 1, row[i]);
+			}
+			stmt.addBatch();
+		}
+		return stmt;
+	}
+
+	/**
+	 * Set the statement parameters from each row and {@link PreparedStatement#addBatch() add} them
+	 * as a batch.
+	 *
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement addBatches(PreparedStatement stmt, long[][] rows)
+			throws SQLException {
+		for (long[] row : rows) {
+			for (int i = 0; i < row.length; i++) {
+				stmt.setLong(i + 1, row[i]);
 			}
+			stmt.addBatch();
 		}
 		return stmt;
 	}
 
+	/**
+	 * Set the statement parameters from each row of values and {@link PreparedStatement#addBatch()
+	 * add} them as a batch.
+	 *
+	 * @param arity
+	 *            number of parameters in each row
+	 * @param values
+	 *            rows of parameters, one after the other. The length must be a multiple of arity.
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement addBatches(PreparedStatement stmt, int arity, int... values)
+			throws SQLException {
+		checkRows(arity, values.length);
+		for (int row = 0; row < values.length; row += arity) {
+			for (int i = 0; i < arity; i++) {
+				stmt.setInt(i + 1, values[row + i]);
+			}
+			stmt.addBatch();
+		}
+		return stmt;
+	}
+
+	/**
+	 * Set the statement parameters from each row of values and {@link PreparedStatement#addBatch()
+	 * add} them as a batch.
+	 *
+	 * @param arity
+	 *            number of parameters in each row
+	 * @param values
+	 *            rows of parameters, one after the other. The length must be a multiple of arity.
+	 * @since 4.1.0
+	 */
+	public static PreparedStatement addBatches(PreparedStatement stmt, int arity, long... values)
+			throws SQLException {
+		checkRows(arity, values.length);
+		for (int row = 0; row < values.length; row += arity) {
+			for (int i = 0; i < arity; i++) {
+				stmt.setLong(i + 1, values[row + i]);
+			}
+			stmt.addBatch();
+		}
+		return stmt;
+	}
+
+	private static void checkRows(int arity, int length) {
+		checkArgument(arity > 0, "arity must be greater than zero");
+		checkArgument(length % arity == 0, "values length must be a multiple of arity");
+	}
+
 	/**
 	 * Execute the query, get the int value in the first row and column of the result set, and close
 	 * the statement.
@@ -126,10 +290,30 @@ public class Statements {
 	 * @return {@link Integer#MIN_VALUE} if the result set is empty
 	 */
 	public static int firstInt(PreparedStatement stmt) throws SQLException {
-		ResultSet rs = stmt.executeQuery();
-		int i = rs.next() ? rs.getInt(1) : Integer.MIN_VALUE;
-		stmt.close();
-		return i;
+		return firstInt(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #firstInt(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int firstInt(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			int i = found ? rs.getInt(1) : Integer.MIN_VALUE;
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return i;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
 	}
 
 	/**
@@ -141,10 +325,30 @@ public class Statements {
 	 * @return {@link Long#MIN_VALUE} if the result set is empty
 	 */
 	public static long firstLong(PreparedStatement stmt) throws SQLException {
-		ResultSet rs = stmt.executeQuery();
-		long l = rs.next() ? rs.getLong(1) : Long.MIN_VALUE;
-		stmt.close();
-		return l;
+		return firstLong(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #firstLong(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static long firstLong(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			long l = found ? rs.getLong(1) : Long.MIN_VALUE;
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return l;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
 	}
 
 	/**
@@ -158,10 +362,31 @@ public class Statements {
 	 */
 	@Nullable
 	public static String firstString(PreparedStatement stmt) throws SQLException {
-		ResultSet rs = stmt.executeQuery();
-		String s = rs.next() ? rs.getString(1) : null;
-		stmt.close();
-		return s;
+		return firstString(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #firstString(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	@Nullable
+	public static String firstString(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			String s = found ? rs.getString(1) : null;
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return s;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
 	}
 
 	/**
@@ -173,7 +398,20 @@ public class Statements {
 	 * @since 3.0.0
 	 */
 	public static int[] firstIntRow(PreparedStatement stmt) throws SQLException {
-		return (int[]) firstRow(stmt, Integer.class);
+		return firstIntRow(stmt, (StatementCache) null);
+	}
+
+	/**
+	 * Same as {@link #firstIntRow(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int[] firstIntRow(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		return (int[]) firstRow(stmt, Integer.class, cache);
 	}
 
 	/**
@@ -185,7 +423,20 @@ public class Statements {
 	 * @since 1.4.0
 	 */
 	public static long[] firstLongRow(PreparedStatement stmt) throws SQLException {
-		return (long[]) firstRow(stmt, Long.class);
+		return firstLongRow(stmt, (StatementCache) null);
+	}
+
+	/**
+	 * Same as {@link #firstLongRow(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static long[] firstLongRow(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		return (long[]) firstRow(stmt, Long.class, cache);
 	}
 
 	/**
@@ -196,35 +447,142 @@ public class Statements {
 	 *            must already have parameters set
 	 * @since 3.0.0
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<String> firstStringRow(PreparedStatement stmt) throws SQLException {
-		return (List<String>) firstRow(stmt, String.class);
+		return firstStringRow(stmt, null);
 	}
 
-	private static Object firstRow(PreparedStatement stmt, Class<?> cls) throws SQLException {
-		Object row = null;
-		ResultSet rs = stmt.executeQuery();
-		if (rs.next()) {
-			int cols = rs.getMetaData().getColumnCount();
-			int[] ints = cls == Integer.class ? new int[cols] : null;
-			long[] longs = cls == Long.class ? new long[cols] : null;
-			List<String> strings = cls == String.class ? new ArrayList<String>(cols) : null;
-			for (int i = 0; i < cols; i++) {
-				if (cls == Integer.class) {
-					ints[i] = rs.getInt(i + 1);
-				} else if (cls == Long.class) {
-					longs[i] = rs.getLong(i + 1);
-				} else {
-					strings.add(rs.getString(i + 1));
+	/**
+	 * Same as {@link #firstStringRow(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<String> firstStringRow(PreparedStatement stmt,
+			@Nullable StatementCache cache) throws SQLException {
+		return (List<String>) firstRow(stmt, String.class, cache);
+	}
+
+	/**
+	 * Execute the query, add the int values in the first row of the result set to the array, and
+	 * close the statement. The array is not cleared first.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return number of values added
+	 * @since 4.1.0
+	 */
+	public static int firstIntRow(PreparedStatement stmt, IntArray row) throws SQLException {
+		return firstIntRow(stmt, row, null);
+	}
+
+	/**
+	 * Same as {@link #firstIntRow(PreparedStatement, IntArray)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int firstIntRow(PreparedStatement stmt, IntArray row,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			int cols = 0;
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			if (found) {
+				cols = rs.getMetaData().getColumnCount();
+				row.ensureCapacity(row.size() + cols);
+				for (int i = 1; i <= cols; i++) {
+					row.add(rs.getInt(i));
 				}
 			}
-			row = ints != null ? ints : longs != null ? longs : strings;
-		} else {
-			row = cls == Integer.class ? EMPTY_INT_ARRAY
-					: cls == Long.class ? EMPTY_LONG_ARRAY : EMPTY_LIST;
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return cols;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the query, add the long values in the first row of the result set to the array, and
+	 * close the statement. The array is not cleared first.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return number of values added
+	 * @since 4.1.0
+	 */
+	public static int firstLongRow(PreparedStatement stmt, LongArray row) throws SQLException {
+		return firstLongRow(stmt, row, null);
+	}
+
+	/**
+	 * Same as {@link #firstLongRow(PreparedStatement, LongArray)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int firstLongRow(PreparedStatement stmt, LongArray row,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			int cols = 0;
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			if (found) {
+				cols = rs.getMetaData().getColumnCount();
+				row.ensureCapacity(row.size() + cols);
+				for (int i = 1; i <= cols; i++) {
+					row.add(rs.getLong(i));
+				}
+			}
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return cols;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	private static Object firstRow(PreparedStatement stmt, Class<?> cls,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			Object row = null;
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			if (found) {
+				int cols = rs.getMetaData().getColumnCount();
+				int[] ints = cls == Integer.class ? new int[cols] : null;
+				long[] longs = cls == Long.class ? new long[cols] : null;
+				List<String> strings = cls == String.class ? new ArrayList<String>(cols) : null;
+				for (int i = 0; i < cols; i++) {
+					if (cls == Integer.class) {
+						ints[i] = rs.getInt(i + 1);
+					} else if (cls == Long.class) {
+						longs[i] = rs.getLong(i + 1);
+					} else {
+						strings.add(rs.getString(i + 1));
+					}
+				}
+				row = ints != null ? ints : longs != null ? longs : strings;
+			} else {
+				row = cls == Integer.class ? EMPTY_INT_ARRAY
+						: cls == Long.class ? EMPTY_LONG_ARRAY : EMPTY_LIST;
+			}
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return row;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
 		}
-		stmt.close();
-		return row;
 	}
 
 	/**
@@ -236,7 +594,20 @@ public class Statements {
 	 * @since 3.0.0
 	 */
 	public static int[] allInts(PreparedStatement stmt) throws SQLException {
-		return (int[]) all(stmt, Integer.class);
+		return allInts(stmt, (StatementCache) null);
+	}
+
+	/**
+	 * Same as {@link #allInts(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int[] allInts(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		return (int[]) all(stmt, Integer.class, cache);
 	}
 
 	/**
@@ -248,7 +619,20 @@ public class Statements {
 	 * @since 1.4.0
 	 */
 	public static long[] allLongs(PreparedStatement stmt) throws SQLException {
-		return (long[]) all(stmt, Long.class);
+		return allLongs(stmt, (StatementCache) null);
+	}
+
+	/**
+	 * Same as {@link #allLongs(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static long[] allLongs(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		return (long[]) all(stmt, Long.class, cache);
 	}
 
 	/**
@@ -259,34 +643,469 @@ public class Statements {
 	 *            must already have parameters set
 	 * @since 1.5.0
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<String> allStrings(PreparedStatement stmt) throws SQLException {
-		return (List<String>) all(stmt, String.class);
-	}
-
-	private static Object all(PreparedStatement stmt, Class<?> cls) throws SQLException {
-		Object all = null;
-		ResultSet rs = stmt.executeQuery();
-		if (rs.next()) {
-			ArrayIntList ints = cls == Integer.class ? new ArrayIntList() : null;
-			ArrayLongList longs = cls == Long.class ? new ArrayLongList() : null;
-			List<String> strings = cls == String.class ? new ArrayList<String>() : null;
-			do {
-				if (cls == Integer.class) {
-					ints.add(rs.getInt(1));
-				} else if (cls == Long.class) {
-					longs.add(rs.getLong(1));
+		return allStrings(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #allStrings(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<String> allStrings(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		return (List<String>) all(stmt, String.class, cache);
+	}
+
+	/**
+	 * Execute the query, add the int values in the first column of the result set to the array,
+	 * and close the statement. The array is not cleared first, so it can be {@link IntArray#clear()
+	 * cleared} and reused across calls to avoid allocating a new array for each result set.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return number of values added
+	 * @since 4.1.0
+	 */
+	public static int allInts(PreparedStatement stmt, IntArray all) throws SQLException {
+		return allInts(stmt, all, null);
+	}
+
+	/**
+	 * Same as {@link #allInts(PreparedStatement, IntArray)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int allInts(PreparedStatement stmt, IntArray all, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			int count = 0;
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				all.add(rs.getInt(1));
+				count++;
+			}
+			close(stmt, rs, cache, start, count);
+			return count;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the query, add the long values in the first column of the result set to the array,
+	 * and close the statement. The array is not cleared first, so it can be
+	 * {@link LongArray#clear() cleared} and reused across calls to avoid allocating a new array for
+	 * each result set.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return number of values added
+	 * @since 4.1.0
+	 */
+	public static int allLongs(PreparedStatement stmt, LongArray all) throws SQLException {
+		return allLongs(stmt, all, null);
+	}
+
+	/**
+	 * Same as {@link #allLongs(PreparedStatement, LongArray)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int allLongs(PreparedStatement stmt, LongArray all,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			int count = 0;
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				all.add(rs.getLong(1));
+				count++;
+			}
+			close(stmt, rs, cache, start, count);
+			return count;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	private static Object all(PreparedStatement stmt, Class<?> cls,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			Object all = null;
+			int count = 0;
+			ResultSet rs = stmt.executeQuery();
+			if (rs.next()) {
+				ArrayIntList ints = cls == Integer.class ? new ArrayIntList() : null;
+				ArrayLongList longs = cls == Long.class ? new ArrayLongList() : null;
+				List<String> strings = cls == String.class ? new ArrayList<String>() : null;
+				do {
+					count++;
+					if (cls == Integer.class) {
+						ints.add(rs.getInt(1));
+					} else if (cls == Long.class) {
+						longs.add(rs.getLong(1));
+					} else {
+						strings.add(rs.getString(1));
+					}
+				} while (rs.next());
+				all = ints != null ? ints.toArray() : longs != null ? longs.toArray() : strings;
+			} else {
+				all = cls == Integer.class ? EMPTY_INT_ARRAY
+						: cls == Long.class ? EMPTY_LONG_ARRAY : EMPTY_LIST;
+			}
+			close(stmt, rs, cache, start, count);
+			return all;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the query, write the long values in the first column of the result set to a
+	 * temporary memory-mapped file, and close the statement. The values are stored outside of the
+	 * heap and can be read again with {@link LongBuffer#duplicate() duplicates} of the buffer.
+	 * The file is deleted when it is no longer mapped, or when the JVM exits if the platform does
+	 * not allow deleting mapped files.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return read-only buffer with up to {@link #MAX_MAPPED_LONGS} values
+	 * @throws IOException
+	 *             if the file cannot be written or there are more than {@link #MAX_MAPPED_LONGS}
+	 *             values
+	 * @since 4.1.0
+	 */
+	public static LongBuffer mapLongs(PreparedStatement stmt) throws SQLException, IOException {
+		File file;
+		try {
+			file = File.createTempFile("sprockets", ".longs");
+		} catch (IOException e) {
+			failed(stmt, null, start(), e);
+			throw e;
+		}
+		file.deleteOnExit();
+		try {
+			return mapLongs(stmt, file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Execute the query, write the long values in the first column of the result set to the
+	 * memory-mapped file, and close the statement. The values are stored outside of the heap and
+	 * can be read again with {@link LongBuffer#duplicate() duplicates} of the buffer. The file is
+	 * extended in chunks as values are written and may be longer than the values when finished.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @param file
+	 *            is overwritten if it exists
+	 * @return read-only buffer with up to {@link #MAX_MAPPED_LONGS} values
+	 * @throws IOException
+	 *             if the file cannot be written or there are more than {@link #MAX_MAPPED_LONGS}
+	 *             values
+	 * @since 4.1.0
+	 */
+	public static LongBuffer mapLongs(PreparedStatement stmt, File file)
+			throws SQLException, IOException {
+		long start = start();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				FileChannel channel = raf.getChannel()) {
+			long offset = 0L; // of the current chunk
+			MappedByteBuffer chunk = null;
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				if (chunk == null || !chunk.hasRemaining()) {
+					if (chunk != null) {
+						offset += chunk.capacity();
+					}
+					long size = Math.min(MAP_CHUNK_SIZE, MAX_MAPPED_LONGS * 8L - offset);
+					if (size == 0L) {
+						throw new IOException("more than " + MAX_MAPPED_LONGS + " values");
+					}
+					chunk = channel.map(READ_WRITE, offset, size);
+					chunk.order(nativeOrder());
+				}
+				chunk.putLong(rs.getLong(1));
+			}
+			long size = chunk != null ? offset + chunk.position() : 0L;
+			LongBuffer longs = channel.map(READ_ONLY, 0L, size).order(nativeOrder()).asLongBuffer();
+			close(stmt, null, null, start, size / 8L);
+			return longs;
+		} catch (SQLException | IOException | RuntimeException e) {
+			failed(stmt, null, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Execute the query, get the values in all rows of the first columns of the result set, and
+	 * close the statement. The values of each column are returned in a separate array, whose type
+	 * is specified by the column's type. For example:
+	 * </p>
+	 * <pre>{@code
+	 * Object[] cols = Statements.allColumns(stmt, long.class, int.class, double.class);
+	 * long[] ids = (long[]) cols[0];
+	 * int[] counts = (int[]) cols[1];
+	 * double[] averages = (double[]) cols[2];
+	 * }</pre>
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @param types
+	 *            {@code int.class}, {@code long.class}, or {@code double.class} for each column to
+	 *            get
+	 * @return an {@code int[]}, {@code long[]}, or {@code double[]} for each type
+	 * @since 4.1.0
+	 */
+	public static Object[] allColumns(PreparedStatement stmt, Class<?>... types)
+			throws SQLException {
+		return allColumns(stmt, null, types);
+	}
+
+	/**
+	 * Same as {@link #allColumns(PreparedStatement, Class...)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static Object[] allColumns(PreparedStatement stmt, @Nullable StatementCache cache,
+			Class<?>... types) throws SQLException {
+		int cols = types.length;
+		Object[] arrays = new Object[cols];
+		long start = start();
+		try {
+			for (int i = 0; i < cols; i++) {
+				Class<?> type = types[i];
+				if (type == int.class) {
+					arrays[i] = new IntArray();
+				} else if (type == long.class) {
+					arrays[i] = new LongArray();
+				} else if (type == double.class) {
+					arrays[i] = new DoubleArray();
 				} else {
-					strings.add(rs.getString(1));
+					throw new IllegalArgumentException("unsupported column type: " + type);
 				}
-			} while (rs.next());
-			all = ints != null ? ints.toArray() : longs != null ? longs.toArray() : strings;
-		} else {
-			all = cls == Integer.class ? EMPTY_INT_ARRAY
-					: cls == Long.class ? EMPTY_LONG_ARRAY : EMPTY_LIST;
+			}
+			int rows = 0;
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				rows++;
+				for (int i = 0; i < cols; i++) {
+					Object array = arrays[i];
+					if (array instanceof LongArray) {
+						((LongArray) array).add(rs.getLong(i + 1));
+					} else if (array instanceof IntArray) {
+						((IntArray) array).add(rs.getInt(i + 1));
+					} else {
+						((DoubleArray) array).add(rs.getDouble(i + 1));
+					}
+				}
+			}
+			close(stmt, rs, cache, start, rows);
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+		for (int i = 0; i < cols; i++) {
+			Object array = arrays[i];
+			arrays[i] = array instanceof LongArray ? ((LongArray) array).toArray()
+					: array instanceof IntArray ? ((IntArray) array).toArray()
+							: ((DoubleArray) array).toArray();
+		}
+		return arrays;
+	}
+
+	/**
+	 * Execute the query, map the first row of the result set, and close the statement.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return null if the result set is empty
+	 * @since 4.1.0
+	 */
+	@Nullable
+	public static <T> T firstRow(PreparedStatement stmt, RowMapper<T> mapper) throws SQLException {
+		return firstRow(stmt, mapper, null);
+	}
+
+	/**
+	 * Same as {@link #firstRow(PreparedStatement, RowMapper)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	@Nullable
+	public static <T> T firstRow(PreparedStatement stmt, RowMapper<T> mapper,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			ResultSet rs = stmt.executeQuery();
+			boolean found = rs.next();
+			T row = found ? mapper.map(rs, mapper.columns(rs)) : null;
+			close(stmt, rs, cache, start, found ? 1 : 0);
+			return row;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the query, map all rows of the result set, and close the statement. The column
+	 * indexes are only found once.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @since 4.1.0
+	 */
+	public static <T> List<T> allRows(PreparedStatement stmt, RowMapper<T> mapper)
+			throws SQLException {
+		return allRows(stmt, mapper, null);
+	}
+
+	/**
+	 * Same as {@link #allRows(PreparedStatement, RowMapper)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static <T> List<T> allRows(PreparedStatement stmt, RowMapper<T> mapper,
+			@Nullable StatementCache cache) throws SQLException {
+		long start = start();
+		try {
+			List<T> rows = new ArrayList<>();
+			ResultSet rs = stmt.executeQuery();
+			if (rs.next()) {
+				int[] columns = mapper.columns(rs);
+				do {
+					rows.add(mapper.map(rs, columns));
+				} while (rs.next());
+			}
+			close(stmt, rs, cache, start, rows.size());
+			return rows;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the query, pass the int values in the first column of the result set to the visitor
+	 * until it returns false or there are no more rows, and close the statement. Values are not
+	 * buffered, so this can be used to process result sets that would not fit in memory.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return number of values visited
+	 * @since 4.1.0
+	 */
+	public static long eachInt(PreparedStatement stmt, IntVisitor visitor) throws SQLException {
+		return eachInt(stmt, 0, visitor);
+	}
+
+	/**
+	 * Execute the query, pass the int values in the first column of the result set to the visitor
+	 * until it returns false or there are no more rows, and close the statement. Values are not
+	 * buffered, so this can be used to process result sets that would not fit in memory.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @param fetchSize
+	 *            number of rows that the driver should fetch at a time, 0 for the driver default
+	 * @return number of values visited
+	 * @since 4.1.0
+	 */
+	public static long eachInt(PreparedStatement stmt, int fetchSize, IntVisitor visitor)
+			throws SQLException {
+		long start = start();
+		try {
+			long count = 0L;
+			stmt.setFetchSize(fetchSize);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				count++;
+				if (!visitor.visit(rs.getInt(1))) {
+					break;
+				}
+			}
+			close(stmt, rs, null, start, count);
+			return count;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, null, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the query, pass the long values in the first column of the result set to the visitor
+	 * until it returns false or there are no more rows, and close the statement. Values are not
+	 * buffered, so this can be used to process result sets that would not fit in memory.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @return number of values visited
+	 * @since 4.1.0
+	 */
+	public static long eachLong(PreparedStatement stmt, LongVisitor visitor) throws SQLException {
+		return eachLong(stmt, 0, visitor);
+	}
+
+	/**
+	 * Execute the query, pass the long values in the first column of the result set to the visitor
+	 * until it returns false or there are no more rows, and close the statement. Values are not
+	 * buffered, so this can be used to process result sets that would not fit in memory.
+	 *
+	 * @param stmt
+	 *            must already have parameters set
+	 * @param fetchSize
+	 *            number of rows that the driver should fetch at a time, 0 for the driver default
+	 * @return number of values visited
+	 * @since 4.1.0
+	 */
+	public static long eachLong(PreparedStatement stmt, int fetchSize, LongVisitor visitor)
+			throws SQLException {
+		long start = start();
+		try {
+			long count = 0L;
+			stmt.setFetchSize(fetchSize);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				count++;
+				if (!visitor.visit(rs.getLong(1))) {
+					break;
+				}
+			}
+			close(stmt, rs, null, start, count);
+			return count;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, null, start, e);
+			throw e;
 		}
-		stmt.close();
-		return all;
 	}
 
 	/**
@@ -299,11 +1118,30 @@ public class Statements {
 	 * @since 3.0.0
 	 */
 	public static int firstIntKey(PreparedStatement stmt) throws SQLException {
-		stmt.execute();
-		ResultSet rs = stmt.getGeneratedKeys();
-		int key = rs.next() ? rs.getInt(1) : 0;
-		stmt.close();
-		return key;
+		return firstIntKey(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #firstIntKey(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int firstIntKey(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			stmt.execute();
+			ResultSet rs = stmt.getGeneratedKeys();
+			int key = rs.next() ? rs.getInt(1) : 0;
+			close(stmt, rs, cache, start, key != 0 ? 1 : 0);
+			return key;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
 	}
 
 	/**
@@ -315,11 +1153,72 @@ public class Statements {
 	 * @return 0 if the statement did not generate any keys
 	 */
 	public static long firstLongKey(PreparedStatement stmt) throws SQLException {
-		stmt.execute();
-		ResultSet rs = stmt.getGeneratedKeys();
-		long key = rs.next() ? rs.getLong(1) : 0L;
-		stmt.close();
-		return key;
+		return firstLongKey(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #firstLongKey(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static long firstLongKey(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			stmt.execute();
+			ResultSet rs = stmt.getGeneratedKeys();
+			long key = rs.next() ? rs.getLong(1) : 0L;
+			close(stmt, rs, cache, start, key != 0L ? 1 : 0);
+			return key;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute the {@link PreparedStatement#addBatch() batches} of the insert statement, get all of
+	 * the generated keys as longs, and close the statement.
+	 *
+	 * @param stmt
+	 *            must have been created with {@link Statement#RETURN_GENERATED_KEYS} and already
+	 *            have batches added
+	 * @return keys in the order that the driver provides them, which is usually the order that the
+	 *         rows were added. Some drivers, like SQLite's, only provide the key of the last row, in
+	 *         which case {@link SQLite#allRowIds(PreparedStatement)} can be used instead.
+	 * @since 4.1.0
+	 */
+	public static long[] allLongKeys(PreparedStatement stmt) throws SQLException {
+		return allLongKeys(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #allLongKeys(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static long[] allLongKeys(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			int[] rows = stmt.executeBatch();
+			LongArray keys = new LongArray(rows.length);
+			ResultSet rs = stmt.getGeneratedKeys();
+			while (rs.next()) {
+				keys.add(rs.getLong(1));
+			}
+			close(stmt, rs, cache, start, sum(rows));
+			return keys.toArray();
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
 	}
 
 	/**
@@ -331,9 +1230,28 @@ public class Statements {
 	 * @since 1.4.0
 	 */
 	public static int update(PreparedStatement stmt) throws SQLException {
-		int rows = stmt.executeUpdate();
-		stmt.close();
-		return rows;
+		return update(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #update(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int update(PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
+		long start = start();
+		try {
+			int rows = stmt.executeUpdate();
+			close(stmt, null, cache, start, rows);
+			return rows;
+		} catch (SQLException | RuntimeException e) {
+			failed(stmt, cache, start, e);
+			throw e;
+		}
 	}
 
 	/**
@@ -345,11 +1263,128 @@ public class Statements {
 	 * @since 1.4.0
 	 */
 	public static int[] batch(@Nullable PreparedStatement stmt) throws SQLException {
+		return batch(stmt, null);
+	}
+
+	/**
+	 * Same as {@link #batch(PreparedStatement)}, except that the statement is
+	 * {@link StatementCache#release(PreparedStatement) released} to the cache instead of closed.
+	 *
+	 * @param cache
+	 *            may be null to close the statement
+	 * @since 4.1.0
+	 */
+	public static int[] batch(@Nullable PreparedStatement stmt, @Nullable StatementCache cache)
+			throws SQLException {
 		int[] rows = EMPTY_INT_ARRAY;
 		if (stmt != null) {
-			rows = stmt.executeBatch();
-			stmt.close();
+			long start = start();
+			try {
+				rows = stmt.executeBatch();
+				close(stmt, null, cache, start, sum(rows));
+			} catch (SQLException | RuntimeException e) {
+				failed(stmt, cache, start, e);
+				throw e;
+			}
 		}
 		return rows;
 	}
+
+	/**
+	 * Get the time that a statement started executing, if stats are being recorded.
+	 */
+	static long start() {
+		return sStats != null ? System.nanoTime() : NOT_TIMED;
+	}
+
+	/**
+	 * Close the result set and release the statement to the cache, or close the statement if there
+	 * isn't a cache. Then record the statement's execution, if it was timed.
+	 *
+	 * @param start
+	 *            from {@link #start()}
+	 * @param rows
+	 *            number of rows read or affected
+	 */
+	static void close(PreparedStatement stmt, @Nullable ResultSet rs,
+			@Nullable StatementCache cache, long start, long rows) throws SQLException {
+		if (cache != null) {
+			if (rs != null) {
+				rs.close();
+			}
+			cache.release(stmt);
+		} else {
+			stmt.close();
+		}
+		QueryStats stats = sStats;
+		if (stats != null && start != NOT_TIMED) {
+			stats.succeeded(stmt, System.nanoTime() - start, rows);
+		}
+	}
+
+	/**
+	 * Record that the statement's execution failed, if it was timed, and close the statement
+	 * without releasing it to the cache. Any exception from closing the statement is
+	 * {@link Throwable#addSuppressed(Throwable) suppressed} by the failure.
+	 *
+	 * @param start
+	 *            from {@link #start()}
+	 */
+	static void failed(PreparedStatement stmt, @Nullable StatementCache cache, long start,
+			Exception failure) {
+		QueryStats stats = sStats;
+		if (stats != null && start != NOT_TIMED) {
+			stats.failed(stmt, System.nanoTime() - start);
+		}
+		try {
+			if (cache != null) {
+				cache.discard(stmt);
+			} else {
+				stmt.close();
+			}
+		} catch (SQLException e) {
+			failure.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * Get the sum of the batch row counts that are known.
+	 */
+	private static long sum(int[] rows) {
+		long sum = 0L;
+		for (int row : rows) {
+			if (row > 0) {
+				sum += row;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Receives int values from a result set, one at a time.
+	 *
+	 * @since 4.1.0
+	 */
+	public interface IntVisitor {
+		/**
+		 * Receive the next value.
+		 *
+		 * @return false to stop reading values
+		 */
+		boolean visit(int value) throws SQLException;
+	}
+
+	/**
+	 * Receives long values from a result set, one at a time.
+	 *
+	 * @since 4.1.0
+	 */
+	public interface LongVisitor {
+		/**
+		 * Receive the next value.
+		 *
+		 * @return false to stop reading values
+		 */
+		boolean visit(long value) throws SQLException;
+	}
 }
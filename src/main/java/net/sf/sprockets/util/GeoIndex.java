@@ -0,0 +1,393 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.sprockets.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_KM;
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_MI;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.annotation.Nullable;
+
+/**
+ * <p>
+ * In-memory index of points for finding those within a radius of, or nearest to, some
+ * coordinates. The points are stored in primitive arrays and grouped by the cells of a uniform
+ * latitude and longitude grid that covers their extent. Distances are measured in the same way
+ * as {@link net.sf.sprockets.sql.SQLite#distance(String, String, String, double, double,
+ * MeasureUnit, String) SQLite.distance}, with the {@link Geos#cos(double) cosine} of each point's
+ * latitude, so results agree with queries on the same data. As with those queries, longitudes
+ * don't wrap around at the antimeridian.
+ * </p>
+ * <p>
+ * Indexes are immutable and can be queried by multiple threads. Building one with a
+ * {@link ForkJoinPool} processes the points in parallel.
+ * </p>
+ *
+ * @since 4.1.0
+ */
+public class GeoIndex {
+	/** Average number of points in each grid cell. */
+	private static final int POINTS_PER_CELL = 4;
+	/** Smallest extent of the grid, in degrees. */
+	private static final double MIN_SPAN = 1e-6;
+	/** Fewest points that are worth building in a separate task. */
+	private static final int MIN_CHUNK = 16384;
+	/** Most number of tasks, each of which counts the points in every cell. */
+	private static final int MAX_CHUNKS = 8;
+
+	private final double mMinLatitude;
+	private final double mMinLongitude;
+	private final double mCellLatitude;
+	private final double mCellLongitude;
+	private final int mRows;
+	private final int mCols;
+	/** Index of the first point in each cell, plus the number of points at the end. */
+	private final int[] mCells;
+	private final double[] mLatitudes;
+	private final double[] mLongitudes;
+	private final double[] mCosines;
+	private final long[] mIds;
+
+	/**
+	 * Index the points in the current thread.
+	 *
+	 * @param ids
+	 *            of the points, same length as the coordinates
+	 */
+	public GeoIndex(double[] latitudes, double[] longitudes, long[] ids) {
+		this(latitudes, longitudes, ids, null);
+	}
+
+	/**
+	 * Index the points in parallel.
+	 *
+	 * @param ids
+	 *            of the points, same length as the coordinates
+	 * @param pool
+	 *            runs the build tasks, or null to build in the current thread
+	 */
+	public GeoIndex(final double[] latitudes, final double[] longitudes, final long[] ids,
+			@Nullable ForkJoinPool pool) {
+		final int n = ids.length;
+		checkArgument(latitudes.length == n && longitudes.length == n,
+				"latitudes, longitudes, and ids must have the same length");
+		double minLat = 90.0;
+		double maxLat = -90.0;
+		double minLon = 180.0;
+		double maxLon = -180.0;
+		for (int i = 0; i < n; i++) {
+			double lat = latitudes[i];
+			double lon = longitudes[i];
+			checkArgument(lat >= -90.0 && lat <= 90.0, "invalid latitude: %s", lat);
+			checkArgument(lon >= -180.0 && lon <= 180.0, "invalid longitude: %s", lon);
+			minLat = Math.min(minLat, lat);
+			maxLat = Math.max(maxLat, lat);
+			minLon = Math.min(minLon, lon);
+			maxLon = Math.max(maxLon, lon);
+		}
+		if (n == 0) {
+			minLat = maxLat = minLon = maxLon = 0.0;
+		}
+		/* roughly square cells, as measured by distance */
+		double latSpan = Math.max(maxLat - minLat, MIN_SPAN);
+		double lonSpan = Math.max(maxLon - minLon, MIN_SPAN);
+		double cos = Math.max(Geos.cos(Math.max(Math.abs(minLat), Math.abs(maxLat))), 0.01);
+		double cells = Math.max(n / POINTS_PER_CELL, 1);
+		double cellLat = Math.sqrt(latSpan * lonSpan * cos / cells);
+		mRows = (int) Math.min(Math.max(Math.ceil(latSpan / cellLat), 1.0), cells);
+		mCols = (int) Math.min(Math.max(Math.ceil(lonSpan / (cellLat / cos)), 1.0),
+				Math.max(cells / mRows, 1.0));
+		mMinLatitude = minLat;
+		mMinLongitude = minLon;
+		mCellLatitude = latSpan / mRows;
+		mCellLongitude = lonSpan / mCols;
+		mCells = new int[mRows * mCols + 1];
+		mLatitudes = new double[n];
+		mLongitudes = new double[n];
+		mCosines = new double[n];
+		mIds = new long[n];
+		/* each chunk counts its points in each cell, then they're copied to the cell positions */
+		int chunks = pool != null
+				? Math.max(Math.min(Math.min(pool.getParallelism(), MAX_CHUNKS), n / MIN_CHUNK), 1)
+				: 1;
+		final int[] pointCells = new int[n];
+		final int[][] counts = new int[chunks][mCells.length - 1];
+		List<RecursiveAction> tasks = new ArrayList<>(chunks);
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			final int from = (int) ((long) n * chunk / chunks);
+			final int to = (int) ((long) n * (chunk + 1) / chunks);
+			final int[] chunkCounts = counts[chunk];
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					for (int i = from; i < to; i++) {
+						int cell = cell(latitudes[i], longitudes[i]);
+						pointCells[i] = cell;
+						chunkCounts[cell]++;
+					}
+				}
+			});
+		}
+		run(pool, tasks);
+		int offset = 0;
+		for (int cell = 0; cell < mCells.length - 1; cell++) {
+			mCells[cell] = offset;
+			for (int[] chunkCounts : counts) { // now the chunk's next position in the cell
+				int count = chunkCounts[cell];
+				chunkCounts[cell] = offset;
+				offset += count;
+			}
+		}
+		mCells[mCells.length - 1] = offset;
+		tasks.clear();
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			final int from = (int) ((long) n * chunk / chunks);
+			final int to = (int) ((long) n * (chunk + 1) / chunks);
+			final int[] positions = counts[chunk];
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					for (int i = from; i < to; i++) {
+						int j = positions[pointCells[i]]++;
+						mLatitudes[j] = latitudes[i];
+						mLongitudes[j] = longitudes[i];
+						mCosines[j] = Geos.cos(latitudes[i]);
+						mIds[j] = ids[i];
+					}
+				}
+			});
+		}
+		run(pool, tasks);
+	}
+
+	/**
+	 * Run the tasks in the pool and wait for them to finish, or run them in the current thread if
+	 * the pool is null.
+	 */
+	private static void run(@Nullable ForkJoinPool pool, final List<RecursiveAction> tasks) {
+		if (pool != null && tasks.size() > 1) {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} else {
+			for (RecursiveAction task : tasks) {
+				task.invoke();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of points in the index.
+	 */
+	public int size() {
+		return mIds.length;
+	}
+
+	/**
+	 * Get the IDs of the points that are up to the radius away from the coordinates, in no
+	 * particular order.
+	 *
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 */
+	public long[] within(double latitude, double longitude, double radius, MeasureUnit unit) {
+		LongArray ids = new LongArray();
+		within(latitude, longitude, radius, unit, ids);
+		return ids.toArray();
+	}
+
+	/**
+	 * Append the IDs of the points that are up to the radius away from the coordinates, in no
+	 * particular order.
+	 *
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @return number of IDs that were added
+	 */
+	public int within(double latitude, double longitude, double radius, MeasureUnit unit,
+			LongArray ids) {
+		checkArgument(radius >= 0.0, "radius must not be negative");
+		double degree = unit == MILE ? LATITUDE_DEGREE_MI : LATITUDE_DEGREE_KM;
+		double latDelta = radius / degree;
+		double minLat = latitude - latDelta;
+		double maxLat = latitude + latDelta;
+		/* longitude degrees are shortest at the edge closest to the pole */
+		double maxAbsLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+		double lonDelta = maxAbsLat < 90.0 ? radius / (degree * Geos.cos(maxAbsLat)) : 360.0;
+		int minRow = row(minLat);
+		int maxRow = row(maxLat);
+		int minCol = col(longitude - lonDelta);
+		int maxCol = col(longitude + lonDelta);
+		double radiusSquared = radius * radius;
+		int added = 0;
+		for (int row = minRow; row <= maxRow; row++) {
+			int cell = row * mCols;
+			for (int i = mCells[cell + minCol], end = mCells[cell + maxCol + 1]; i < end; i++) {
+				if (distanceSquared(latitude, longitude, degree, i) <= radiusSquared) {
+					ids.add(mIds[i]);
+					added++;
+				}
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Get the IDs of the points that are nearest to the coordinates, in ascending order of
+	 * distance.
+	 *
+	 * @param count
+	 *            maximum number of IDs to get
+	 */
+	public long[] nearest(double latitude, double longitude, int count) {
+		LongArray ids = new LongArray(Math.min(count, size()));
+		nearest(latitude, longitude, count, ids);
+		return ids.toArray();
+	}
+
+	/**
+	 * Append the IDs of the points that are nearest to the coordinates, in ascending order of
+	 * distance.
+	 *
+	 * @param count
+	 *            maximum number of IDs to add
+	 * @return number of IDs that were added
+	 */
+	public int nearest(double latitude, double longitude, int count, LongArray ids) {
+		checkArgument(count >= 0, "count must not be negative");
+		count = Math.min(count, size());
+		if (count == 0) {
+			return 0;
+		}
+		/* the cell that contains the coordinates, or is next to the grid */
+		int qRow = (int) Math.max(Math.min(
+				Math.floor((latitude - mMinLatitude) / mCellLatitude), mRows), -1.0);
+		int qCol = (int) Math.max(Math.min(
+				Math.floor((longitude - mMinLongitude) / mCellLongitude), mCols), -1.0);
+		int maxRing = Math.max(Math.max(qRow + 1, mRows - qRow), Math.max(qCol + 1, mCols - qCol));
+		MaxHeap heap = new MaxHeap(count);
+		for (int ring = 0; ring <= maxRing; ring++) {
+			int minRow = qRow - ring;
+			int maxRow = qRow + ring;
+			for (int row = Math.max(minRow, 0), rows = Math.min(maxRow, mRows - 1); row <= rows;
+					row++) {
+				int minCol = qCol - ring;
+				int maxCol = qCol + ring;
+				if (row == minRow || row == maxRow) { // whole row of the ring
+					offerCells(latitude, longitude, row, minCol, maxCol, heap);
+				} else { // only the ends
+					offerCells(latitude, longitude, row, minCol, minCol, heap);
+					if (maxCol != minCol) {
+						offerCells(latitude, longitude, row, maxCol, maxCol, heap);
+					}
+				}
+			}
+			/* points in further rings are at least this far away */
+			if (heap.isFull()) {
+				double bound = ring * Math.min(mCellLatitude, mCellLongitude * minCos(qRow, ring))
+						* LATITUDE_DEGREE_KM;
+				if (heap.max() <= bound * bound) {
+					break;
+				}
+			}
+		}
+		int[] points = new int[count];
+		int size = heap.drain(null, points);
+		ids.ensureCapacity(ids.size() + size);
+		for (int i = 0; i < size; i++) {
+			ids.add(mIds[points[i]]);
+		}
+		return size;
+	}
+
+	/**
+	 * Offer the points in the columns of the row to the heap. Columns outside the grid are
+	 * ignored.
+	 */
+	private void offerCells(double latitude, double longitude, int row, int minCol, int maxCol,
+			MaxHeap heap) {
+		minCol = Math.max(minCol, 0);
+		maxCol = Math.min(maxCol, mCols - 1);
+		if (minCol <= maxCol) {
+			int cell = row * mCols;
+			for (int i = mCells[cell + minCol], end = mCells[cell + maxCol + 1]; i < end; i++) {
+				heap.offer(distanceSquared(latitude, longitude, LATITUDE_DEGREE_KM, i), i);
+			}
+		}
+	}
+
+	/**
+	 * Get the smallest latitude cosine of the points that are in the row, or up to one more than
+	 * the ring away from it.
+	 */
+	private double minCos(int row, int ring) {
+		double minLat = mMinLatitude + (row - ring - 1) * mCellLatitude;
+		double maxLat = mMinLatitude + (row + ring + 2) * mCellLatitude;
+		double maxAbsLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+		return maxAbsLat < 90.0 ? Geos.cos(maxAbsLat) : 0.0;
+	}
+
+	/**
+	 * Get the squared distance from the coordinates to the point at the index.
+	 *
+	 * @param degree
+	 *            length of one degree of latitude
+	 */
+	private double distanceSquared(double latitude, double longitude, double degree, int i) {
+		double lat = degree * (latitude - mLatitudes[i]);
+		double lon = degree * (longitude - mLongitudes[i]) * mCosines[i];
+		return lat * lat + lon * lon;
+	}
+
+	private int cell(double latitude, double longitude) {
+		return row(latitude) * mCols + col(longitude);
+	}
+
+	private int row(double latitude) {
+		return index((latitude - mMinLatitude) / mCellLatitude, mRows);
+	}
+
+	private int col(double longitude) {
+		return index((longitude - mMinLongitude) / mCellLongitude, mCols);
+	}
+
+	/**
+	 * Get the grid index of the offset, limited to the grid.
+	 */
+	private static int index(double offset, int length) {
+		return offset <= 0.0 ? 0 : offset >= length ? length - 1 : (int) offset;
+	}
+}
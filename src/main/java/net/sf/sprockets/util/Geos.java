@@ -17,6 +17,13 @@
 
 package net.sf.sprockets.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+
+import java.util.Arrays;
+
 /**
  * Constants and utility methods for working with geographical functions.
  *
@@ -37,6 +44,49 @@ public class Geos {
 	 */
 	public static final double LATITUDE_DEGREE_MI = 69.054;
 
+	/**
+	 * Mean radius of the Earth in kilometres.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final double EARTH_RADIUS_KM = 6371.0088;
+
+	/**
+	 * Mean radius of the Earth in miles.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final double EARTH_RADIUS_MI = 3958.7613;
+
+	/**
+	 * Maximum number of bits in a {@link #geohash(double, double, int) geohash}.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MAX_GEOHASH_BITS = 60;
+
+	/**
+	 * Maximum number of cells that {@link #geohashes(double, double, double, MeasureUnit, int)
+	 * geohashes} returns.
+	 *
+	 * @since 4.1.0
+	 */
+	public static final int MAX_GEOHASH_CELLS = 1024;
+
+	/** WGS 84 semi-major axis in metres. */
+	private static final double WGS84_A = 6378137.0;
+	/** WGS 84 flattening. */
+	private static final double WGS84_F = 1.0 / 298.257223563;
+	/** WGS 84 semi-minor axis in metres. */
+	private static final double WGS84_B = (1.0 - WGS84_F) * WGS84_A;
+	private static final int VINCENTY_ITERATIONS = 200;
+	private static final double METRES_PER_MILE = 1609.344;
+
+	/** Number of distances that nearest calculates at a time. */
+	private static final int DISTANCES_BLOCK = 1024;
+
+	private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
 	private Geos() {
 	}
 
@@ -52,4 +102,433 @@ public class Geos {
 	public static double cos(double latitude) {
 		return Math.cos(latitude / 57.295779579);
 	}
+
+	/**
+	 * Get the great-circle distance between the coordinates, using the haversine formula on a
+	 * spherical Earth. Compared to {@link #vincenty(double, double, double, double, MeasureUnit)
+	 * vincenty}, the error is less than 0.6% for any coordinates.
+	 *
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @since 4.1.0
+	 */
+	public static double distance(double latitude1, double longitude1, double latitude2,
+			double longitude2, MeasureUnit unit) {
+		double lat1 = Math.toRadians(latitude1);
+		double lat2 = Math.toRadians(latitude2);
+		double sinLat = Math.sin((lat2 - lat1) / 2.0);
+		double sinLon = Math.sin(Math.toRadians(longitude2 - longitude1) / 2.0);
+		double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+		return 2.0 * (unit == MILE ? EARTH_RADIUS_MI : EARTH_RADIUS_KM)
+				* Math.asin(Math.sqrt(Math.min(h, 1.0)));
+	}
+
+	/**
+	 * Get the distance between the coordinates, using the equirectangular projection on a
+	 * spherical Earth. This is the fastest method, with one cosine and one square root. Compared to
+	 * {@link #vincenty(double, double, double, double, MeasureUnit) vincenty}, the error is less
+	 * than 0.6% for distances up to 1000 km and latitudes up to 70 degrees, but grows quickly
+	 * beyond that.
+	 *
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @since 4.1.0
+	 */
+	public static double equirectangular(double latitude1, double longitude1, double latitude2,
+			double longitude2, MeasureUnit unit) {
+		double x = Math.toRadians(longitudeDelta(longitude1, longitude2))
+				* Math.cos(Math.toRadians((latitude1 + latitude2) / 2.0));
+		double y = Math.toRadians(latitude2 - latitude1);
+		return (unit == MILE ? EARTH_RADIUS_MI : EARTH_RADIUS_KM) * Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * Get the distance between the coordinates, using the improved approximate distance that
+	 * {@link net.sf.sprockets.sql.SQLite#distance(String, String, String, double, double,
+	 * MeasureUnit, String) SQLite.distance} calculates, with the {@link #cos(double) cosine} of
+	 * the second latitude. Degrees of latitude have their length at 45 degrees, so compared to
+	 * {@link #vincenty(double, double, double, double, MeasureUnit) vincenty}, the error is less
+	 * than 1.5% for distances up to 100 km and latitudes up to 70 degrees, but grows quickly
+	 * beyond that. As in SQLite.distance, longitudes don't wrap around at the
+	 * antimeridian.
+	 *
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @since 4.1.0
+	 */
+	public static double approximate(double latitude1, double longitude1, double latitude2,
+			double longitude2, MeasureUnit unit) {
+		double degree = unit == MILE ? LATITUDE_DEGREE_MI : LATITUDE_DEGREE_KM;
+		double y = degree * (latitude1 - latitude2);
+		double x = degree * (longitude1 - longitude2) * cos(latitude2);
+		return Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * Get the distance between the coordinates on the WGS 84 ellipsoid, using <a href=
+	 * "https://en.wikipedia.org/wiki/Vincenty%27s_formulae" target="_blank">Vincenty's inverse
+	 * formula</a>. This is the most accurate and slowest method, with an error of less than a
+	 * millimetre. It iterates until converging, which usually takes a few iterations, but may
+	 * fail for nearly antipodal coordinates.
+	 *
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @return NaN if the formula didn't converge
+	 * @since 4.1.0
+	 */
+	public static double vincenty(double latitude1, double longitude1, double latitude2,
+			double longitude2, MeasureUnit unit) {
+		double l = Math.toRadians(longitudeDelta(longitude1, longitude2));
+		double u1 = Math.atan((1.0 - WGS84_F) * Math.tan(Math.toRadians(latitude1)));
+		double u2 = Math.atan((1.0 - WGS84_F) * Math.tan(Math.toRadians(latitude2)));
+		double sinU1 = Math.sin(u1);
+		double cosU1 = Math.cos(u1);
+		double sinU2 = Math.sin(u2);
+		double cosU2 = Math.cos(u2);
+		double lambda = l;
+		for (int i = 0; i < VINCENTY_ITERATIONS; i++) {
+			double sinLambda = Math.sin(lambda);
+			double cosLambda = Math.cos(lambda);
+			double a = cosU2 * sinLambda;
+			double b = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+			double sinSigma = Math.sqrt(a * a + b * b);
+			if (sinSigma == 0.0) {
+				return 0.0; // same point
+			}
+			double cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+			double sigma = Math.atan2(sinSigma, cosSigma);
+			double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+			double cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+			double cos2SigmaM = cosSqAlpha != 0.0 ? cosSigma - 2.0 * sinU1 * sinU2 / cosSqAlpha
+					: 0.0; // equatorial line
+			double c = WGS84_F / 16.0 * cosSqAlpha * (4.0 + WGS84_F * (4.0 - 3.0 * cosSqAlpha));
+			double previous = lambda;
+			lambda = l + (1.0 - c) * WGS84_F * sinAlpha * (sigma + c * sinSigma
+					* (cos2SigmaM + c * cosSigma * (-1.0 + 2.0 * cos2SigmaM * cos2SigmaM)));
+			if (Math.abs(lambda - previous) < 1e-12) {
+				double uSq = cosSqAlpha * (WGS84_A * WGS84_A - WGS84_B * WGS84_B)
+						/ (WGS84_B * WGS84_B);
+				double aa = 1.0 + uSq / 16384.0
+						* (4096.0 + uSq * (-768.0 + uSq * (320.0 - 175.0 * uSq)));
+				double bb = uSq / 1024.0 * (256.0 + uSq * (-128.0 + uSq * (74.0 - 47.0 * uSq)));
+				double cos2SigmaMSq = cos2SigmaM * cos2SigmaM;
+				double deltaSigma = bb * sinSigma * (cos2SigmaM + bb / 4.0
+						* (cosSigma * (-1.0 + 2.0 * cos2SigmaMSq) - bb / 6.0 * cos2SigmaM
+						* (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SigmaMSq)));
+				double metres = WGS84_B * aa * (sigma - deltaSigma);
+				return metres / (unit == MILE ? METRES_PER_MILE : 1000.0);
+			}
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Get the difference between the longitudes, between -180 and 180 degrees.
+	 */
+	private static double longitudeDelta(double longitude1, double longitude2) {
+		double delta = longitude2 - longitude1;
+		if (delta > 180.0) {
+			delta -= 360.0;
+		} else if (delta < -180.0) {
+			delta += 360.0;
+		}
+		return delta;
+	}
+
+	/**
+	 * Get the {@link #cos(double) cosine} of each latitude.
+	 *
+	 * @since 4.1.0
+	 */
+	public static double[] cosines(double[] latitudes) {
+		double[] cosines = new double[latitudes.length];
+		for (int i = 0; i < latitudes.length; i++) {
+			cosines[i] = cos(latitudes[i]);
+		}
+		return cosines;
+	}
+
+	/**
+	 * Calculate the squared distance from the coordinates to each of the points, in the same way
+	 * as {@link net.sf.sprockets.sql.SQLite#distance(String, String, String, double, double,
+	 * MeasureUnit, String) SQLite.distance}.
+	 *
+	 * @param latitudes
+	 *            of the points
+	 * @param longitudes
+	 *            of the points
+	 * @param cosines
+	 *            of the point latitudes, see {@link #cosines(double[])}
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @param distances
+	 *            receives the squared distances, must be at least as long as the points
+	 * @return the distances array
+	 * @since 4.1.0
+	 */
+	public static double[] distances(double latitude, double longitude, double[] latitudes,
+			double[] longitudes, double[] cosines, MeasureUnit unit, double[] distances) {
+		return distances(latitude, longitude, latitudes, longitudes, cosines, 0, latitudes.length,
+				unit, distances);
+	}
+
+	/**
+	 * Calculate the squared distance from the coordinates to each of a range of the points, in the
+	 * same way as {@link net.sf.sprockets.sql.SQLite#distance(String, String, String, double,
+	 * double, MeasureUnit, String) SQLite.distance}. The loop is simple enough for the JIT
+	 * compiler to vectorise.
+	 *
+	 * @param offset
+	 *            of the first point
+	 * @param length
+	 *            number of points
+	 * @param distances
+	 *            receives the squared distance to point {@code offset + i} at index {@code i}
+	 * @return the distances array
+	 * @see #distances(double, double, double[], double[], double[], MeasureUnit, double[])
+	 * @since 4.1.0
+	 */
+	public static double[] distances(double latitude, double longitude, double[] latitudes,
+			double[] longitudes, double[] cosines, int offset, int length, MeasureUnit unit,
+			double[] distances) {
+		int end = offset + length;
+		checkPositionIndexes(offset, end, latitudes.length);
+		checkPositionIndexes(offset, end, longitudes.length);
+		checkPositionIndexes(offset, end, cosines.length);
+		checkPositionIndexes(0, length, distances.length);
+		double degree = unit == MILE ? LATITUDE_DEGREE_MI : LATITUDE_DEGREE_KM;
+		double degreeLatitude = degree * latitude;
+		double degreeLongitude = degree * longitude;
+		for (int i = 0; i < length; i++) {
+			double y = degreeLatitude - degree * latitudes[offset + i];
+			double x = (degreeLongitude - degree * longitudes[offset + i]) * cosines[offset + i];
+			distances[i] = x * x + y * y;
+		}
+		return distances;
+	}
+
+	/**
+	 * Get the indexes of the points that are nearest to the coordinates, as measured by
+	 * {@link #distances(double, double, double[], double[], double[], MeasureUnit, double[])
+	 * distances}.
+	 *
+	 * @param latitudes
+	 *            of the points
+	 * @param longitudes
+	 *            of the points
+	 * @param cosines
+	 *            of the point latitudes, see {@link #cosines(double[])}
+	 * @param count
+	 *            maximum number of indexes to get
+	 * @return in ascending order of distance
+	 * @since 4.1.0
+	 */
+	public static int[] nearest(double latitude, double longitude, double[] latitudes,
+			double[] longitudes, double[] cosines, int count) {
+		checkArgument(count >= 0, "count must not be negative");
+		int n = latitudes.length;
+		count = Math.min(count, n);
+		if (count == 0) {
+			return new int[0];
+		}
+		MaxHeap heap = new MaxHeap(count);
+		double[] block = new double[Math.min(n, DISTANCES_BLOCK)];
+		boolean full = false;
+		double max = 0.0; // of the heap once it's full
+		for (int offset = 0; offset < n; offset += block.length) {
+			int length = Math.min(block.length, n - offset);
+			distances(latitude, longitude, latitudes, longitudes, cosines, offset, length,
+					KILOMETER, block);
+			for (int i = 0; i < length; i++) {
+				if (!full || block[i] < max) {
+					heap.offer(block[i], offset + i);
+					full = heap.isFull();
+					if (full) {
+						max = heap.max();
+					}
+				}
+			}
+		}
+		int[] indexes = new int[count];
+		heap.drain(null, indexes);
+		return indexes;
+	}
+
+	/**
+	 * Get the edges of a box that contains all points up to the radius away from the coordinates,
+	 * as measured by the improved approximate distance. If the box includes a pole, it includes
+	 * all longitudes.
+	 *
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @return minimum and maximum latitude, minimum and maximum longitude, and a second minimum and
+	 *         maximum longitude. The second range is empty (minimum greater than maximum) unless
+	 *         the box crosses the antimeridian, in which case the first range ends at 180 and the
+	 *         second range starts at -180.
+	 * @since 4.1.0
+	 */
+	public static double[] box(double latitude, double longitude, double radius, MeasureUnit unit) {
+		checkArgument(radius >= 0.0, "radius must not be negative");
+		double degree = unit == MILE ? LATITUDE_DEGREE_MI : LATITUDE_DEGREE_KM;
+		double latitudeDelta = radius / degree;
+		double minLatitude = latitude - latitudeDelta;
+		double maxLatitude = latitude + latitudeDelta;
+		double[] box = { Math.max(minLatitude, -90.0), Math.min(maxLatitude, 90.0), -180.0, 180.0,
+				1.0, 0.0 };
+		if (minLatitude > -90.0 && maxLatitude < 90.0) { // doesn't include a pole
+			/* longitude degrees are shortest at the edge closest to the pole */
+			double cos = cos(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude)));
+			double longitudeDelta = radius / (degree * cos);
+			if (longitudeDelta < 180.0) {
+				double minLongitude = longitude - longitudeDelta;
+				double maxLongitude = longitude + longitudeDelta;
+				if (minLongitude < -180.0) {
+					box[2] = minLongitude + 360.0;
+					box[5] = maxLongitude;
+					box[4] = -180.0;
+				} else if (maxLongitude > 180.0) {
+					box[2] = minLongitude;
+					box[4] = -180.0;
+					box[5] = maxLongitude - 360.0;
+				} else {
+					box[2] = minLongitude;
+					box[3] = maxLongitude;
+				}
+			}
+		}
+		return box;
+	}
+
+	/**
+	 * <p>
+	 * Get the <a href="https://en.wikipedia.org/wiki/Geohash" target="_blank">geohash</a> of the
+	 * grid cell that contains the coordinates. The bits alternate between longitude and latitude,
+	 * starting with longitude, so cells are approximately square when the number of bits is odd
+	 * and twice as wide as they are tall when it's even. Coordinates in the same cell have the same
+	 * geohash and a geohash with fewer bits is a prefix of one with more bits.
+	 * </p>
+	 * <p>
+	 * Store the geohash in an indexed column to find nearby rows with
+	 * {@link #geohashes(double, double, double, MeasureUnit, int) geohashes}.
+	 * </p>
+	 *
+	 * @param bits
+	 *            between 1 and {@link #MAX_GEOHASH_BITS}. Every 5 bits is one
+	 *            {@link #geohashString(long, int) base 32} character.
+	 * @return between 0 and 2<sup>bits</sup> - 1
+	 * @since 4.1.0
+	 */
+	public static long geohash(double latitude, double longitude, int bits) {
+		checkBits(bits);
+		int latitudeBits = bits / 2;
+		int longitudeBits = bits - latitudeBits;
+		return interleave(cell(longitude + 180.0, 360.0, longitudeBits), longitudeBits,
+				cell(latitude + 90.0, 180.0, latitudeBits), latitudeBits);
+	}
+
+	/**
+	 * Get the base 32 characters of the geohash.
+	 *
+	 * @param bits
+	 *            of the geohash, must be a multiple of 5
+	 * @return e.g. u4pruydqqvj
+	 * @since 4.1.0
+	 */
+	public static String geohashString(long geohash, int bits) {
+		checkBits(bits);
+		checkArgument(bits % 5 == 0, "bits must be a multiple of 5");
+		char[] chars = new char[bits / 5];
+		for (int i = chars.length - 1; i >= 0; i--) {
+			chars[i] = BASE32[(int) (geohash & 31L)];
+			geohash >>>= 5;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Get the geohashes of the grid cells that cover all points up to the radius away from the
+	 * coordinates, in ascending order. Rows with a
+	 * {@link #geohash(double, double, int) geohash} column can then be found by equality instead
+	 * of calculating their distance. The cells cover the {@link #box(double, double, double,
+	 * MeasureUnit) box} around the coordinates, so some of the rows may be further away than the
+	 * radius.
+	 *
+	 * @param radius
+	 *            in the unit
+	 * @param unit
+	 *            KILOMETER or MILE
+	 * @param bits
+	 *            between 1 and {@link #MAX_GEOHASH_BITS}
+	 * @throws IllegalArgumentException
+	 *             if more than {@link #MAX_GEOHASH_CELLS} would be returned. Use fewer bits for
+	 *             larger radii.
+	 * @since 4.1.0
+	 */
+	public static long[] geohashes(double latitude, double longitude, double radius,
+			MeasureUnit unit, int bits) {
+		checkBits(bits);
+		double[] box = box(latitude, longitude, radius, unit);
+		int latitudeBits = bits / 2;
+		int longitudeBits = bits - latitudeBits;
+		long minRow = cell(box[0] + 90.0, 180.0, latitudeBits);
+		long maxRow = cell(box[1] + 90.0, 180.0, latitudeBits);
+		long minCol = cell(box[2] + 180.0, 360.0, longitudeBits);
+		long maxCol = cell(box[3] + 180.0, 360.0, longitudeBits);
+		long cols = maxCol - minCol + 1;
+		long minCol2 = 0L;
+		long maxCol2 = -1L;
+		if (box[4] <= box[5]) { // wraps
+			minCol2 = cell(box[4] + 180.0, 360.0, longitudeBits);
+			maxCol2 = Math.min(cell(box[5] + 180.0, 360.0, longitudeBits), minCol - 1);
+			cols += Math.max(maxCol2 - minCol2 + 1, 0L);
+		}
+		long cells = (maxRow - minRow + 1) * cols;
+		checkArgument(cells <= MAX_GEOHASH_CELLS,
+				"%s cells needed, radius must be smaller or use fewer bits", cells);
+		long[] geohashes = new long[(int) cells];
+		int i = 0;
+		for (long row = minRow; row <= maxRow; row++) {
+			for (long col = minCol; col <= maxCol; col++) {
+				geohashes[i++] = interleave(col, longitudeBits, row, latitudeBits);
+			}
+			for (long col = minCol2; col <= maxCol2; col++) {
+				geohashes[i++] = interleave(col, longitudeBits, row, latitudeBits);
+			}
+		}
+		Arrays.sort(geohashes);
+		return geohashes;
+	}
+
+	private static void checkBits(int bits) {
+		checkArgument(bits > 0 && bits <= MAX_GEOHASH_BITS,
+				"bits must be between 1 and " + MAX_GEOHASH_BITS);
+	}
+
+	/**
+	 * Get the index of the cell that contains the offset when the range is divided into
+	 * 2<sup>bits</sup> cells.
+	 */
+	private static long cell(double offset, double range, int bits) {
+		long cells = 1L << bits;
+		long cell = (long) Math.floor(offset / range * cells);
+		return cell < 0L ? 0L : cell >= cells ? cells - 1L : cell;
+	}
+
+	/**
+	 * Interleave the bits of the cell indexes, starting with the most significant longitude bit.
+	 * The latitude has the same number of bits as the longitude, or one fewer.
+	 */
+	private static long interleave(long longitude, int longitudeBits, long latitude,
+			int latitudeBits) {
+		long geohash = 0L;
+		for (int i = longitudeBits - 1, j = latitudeBits - 1; i >= 0; i--, j--) {
+			geohash = geohash << 1 | longitude >>> i & 1L;
+			if (j >= 0) {
+				geohash = geohash << 1 | latitude >>> j & 1L;
+			}
+		}
+		return geohash;
+	}
 }
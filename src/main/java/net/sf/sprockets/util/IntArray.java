@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.util;
+
+import static org.apache.commons.lang3.ArrayUtils.EMPTY_INT_ARRAY;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of ints that can be {@link #clear() cleared} and filled again without
+ * reallocating. Not thread-safe.
+ *
+ * @since 4.1.0
+ */
+public class IntArray {
+	private int[] mValues;
+	private int mSize;
+
+	public IntArray() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity
+	 *            number of values that can be added before the array needs to grow
+	 */
+	public IntArray(int capacity) {
+		mValues = capacity > 0 ? new int[capacity] : EMPTY_INT_ARRAY;
+	}
+
+	/**
+	 * Append the value, growing the array if necessary.
+	 */
+	public IntArray add(int value) {
+		if (mSize == mValues.length) {
+			ensureCapacity(mSize + 1);
+		}
+		mValues[mSize++] = value;
+		return this;
+	}
+
+	/**
+	 * Get the value at the index.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not less than {@link #size()}
+	 */
+	public int get(int index) {
+		if (index >= mSize) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+		}
+		return mValues[index];
+	}
+
+	/**
+	 * Get the number of values that have been added since the array was created or last cleared.
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * True if no values have been added since the array was created or last cleared.
+	 */
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	/**
+	 * Remove all of the values. The current capacity is retained for reuse.
+	 */
+	public IntArray clear() {
+		mSize = 0;
+		return this;
+	}
+
+	/**
+	 * Grow the array, if necessary, so that it can hold at least the number of values.
+	 */
+	public IntArray ensureCapacity(int capacity) {
+		if (capacity > mValues.length) {
+			mValues = Arrays.copyOf(mValues, Math.max(capacity, mValues.length * 3 / 2 + 1));
+		}
+		return this;
+	}
+
+	/**
+	 * Get the backing array, which is only valid up to {@link #size()} and may be replaced when
+	 * values are added.
+	 */
+	public int[] array() {
+		return mValues;
+	}
+
+	/**
+	 * Get a copy of the values.
+	 */
+	public int[] toArray() {
+		return mSize > 0 ? Arrays.copyOf(mValues, mSize) : EMPTY_INT_ARRAY;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.sprockets.util;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded max-heap of double keys and int values that keeps the values with the smallest keys.
+ * Not thread-safe.
+ */
+class MaxHeap {
+	private final double[] mKeys;
+	private final int[] mValues;
+	private int mSize;
+
+	/**
+	 * @param capacity
+	 *            maximum number of values to keep
+	 */
+	MaxHeap(int capacity) {
+		mKeys = new double[capacity];
+		mValues = new int[capacity];
+	}
+
+	/**
+	 * Add the value if the heap isn't full or its key is less than the {@link #max() max} key,
+	 * in which case the value with the max key is removed.
+	 *
+	 * @return true if the value was added
+	 */
+	boolean offer(double key, int value) {
+		if (mSize < mKeys.length) {
+			int i = mSize++;
+			while (i > 0) { // sift up
+				int parent = (i - 1) >>> 1;
+				if (mKeys[parent] >= key) {
+					break;
+				}
+				mKeys[i] = mKeys[parent];
+				mValues[i] = mValues[parent];
+				i = parent;
+			}
+			mKeys[i] = key;
+			mValues[i] = value;
+			return true;
+		}
+		if (mSize > 0 && key < mKeys[0]) {
+			siftDown(key, value, mSize);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Put the key and value at the root and move them down to their place in the first entries.
+	 */
+	private void siftDown(double key, int value, int size) {
+		int i = 0;
+		int child;
+		while ((child = 2 * i + 1) < size) {
+			if (child + 1 < size && mKeys[child + 1] > mKeys[child]) {
+				child++;
+			}
+			if (key >= mKeys[child]) {
+				break;
+			}
+			mKeys[i] = mKeys[child];
+			mValues[i] = mValues[child];
+			i = child;
+		}
+		mKeys[i] = key;
+		mValues[i] = value;
+	}
+
+	/**
+	 * Get the largest key.
+	 *
+	 * @throws IllegalStateException
+	 *             if the heap is empty
+	 */
+	double max() {
+		if (mSize == 0) {
+			throw new IllegalStateException("heap is empty");
+		}
+		return mKeys[0];
+	}
+
+	int size() {
+		return mSize;
+	}
+
+	/**
+	 * True if values are only added when their key is less than the {@link #max() max} key.
+	 */
+	boolean isFull() {
+		return mSize == mKeys.length;
+	}
+
+	/**
+	 * Remove all of the values and copy them to the arrays, in ascending order of their keys.
+	 *
+	 * @param keys
+	 *            may be null if the keys aren't needed
+	 * @return number of values that were copied
+	 */
+	int drain(@Nullable double[] keys, int[] values) {
+		int size = mSize;
+		for (int last = size - 1; last > 0; last--) { // heapsort in place
+			double key = mKeys[0];
+			int value = mValues[0];
+			siftDown(mKeys[last], mValues[last], last);
+			mKeys[last] = key;
+			mValues[last] = value;
+		}
+		if (keys != null) {
+			System.arraycopy(mKeys, 0, keys, 0, size);
+		}
+		System.arraycopy(mValues, 0, values, 0, size);
+		mSize = 0;
+		return size;
+	}
+}
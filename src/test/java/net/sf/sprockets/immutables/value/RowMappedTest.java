@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.immutables.value;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.immutables.value.Value.Immutable;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import net.sf.sprockets.sql.Statements;
+import net.sf.sprockets.test.SprocketsTest;
+
+public class RowMappedTest extends SprocketsTest {
+	@Mock
+	private PreparedStatement mStmt;
+	@Mock
+	private ResultSet mRs;
+
+	@Test
+	public void testAllRows() throws SQLException {
+		when(mStmt.executeQuery()).thenReturn(mRs);
+		when(mRs.next()).thenReturn(true, true, false);
+		when(mRs.findColumn("person_id")).thenReturn(1);
+		when(mRs.findColumn("full_name")).thenReturn(2);
+		when(mRs.findColumn("age")).thenReturn(3);
+		when(mRs.findColumn("photo")).thenReturn(4);
+		when(mRs.getLong(1)).thenReturn(3L, 5L);
+		when(mRs.getString(2)).thenReturn("Alice", "Bob");
+		when(mRs.getInt(3)).thenReturn(30, 0);
+		when(mRs.wasNull()).thenReturn(false, true);
+		when(mRs.getBytes(4)).thenReturn(new byte[] { 1 }, (byte[]) null);
+		List<Person> people = Statements.allRows(mStmt, PersonRowMapper.INSTANCE);
+		assertEquals(2, people.size());
+		Person alice = people.get(0);
+		assertEquals(3L, alice.getPersonId());
+		assertEquals("Alice", alice.getName());
+		assertEquals(Integer.valueOf(30), alice.getAge());
+		assertArrayEquals(new byte[] { 1 }, alice.getPhoto());
+		Person bob = people.get(1);
+		assertEquals("Bob", bob.getName());
+		assertNull(bob.getAge());
+		assertNull(bob.getPhoto());
+		verify(mRs, times(1)).findColumn("person_id");
+		verify(mStmt).close();
+	}
+
+	@Immutable
+	@RowMapped
+	public abstract static class Person {
+		public abstract long getPersonId();
+
+		@RowMapped.Column("full_name")
+		public abstract String getName();
+
+		@Nullable
+		public abstract Integer getAge();
+
+		@Nullable
+		public abstract byte[] getPhoto();
+	}
+}
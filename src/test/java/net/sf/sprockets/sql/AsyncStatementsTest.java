@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import net.sf.sprockets.test.SprocketsTest;
+import net.sf.sprockets.util.concurrent.ResultCallback;
+
+public class AsyncStatementsTest extends SprocketsTest {
+	@Mock
+	private PreparedStatement mStmt;
+	@Mock
+	private ResultSet mRs;
+	private ExecutorService mExecutor;
+	private AsyncStatements mAsync;
+
+	@Before
+	public void setUp() throws SQLException {
+		when(mStmt.executeQuery()).thenReturn(mRs);
+		when(mRs.next()).thenReturn(true, true, false);
+		when(mRs.getLong(1)).thenReturn(3L, 5L);
+		mExecutor = AsyncStatements.newExecutor(2, 8);
+		mAsync = new AsyncStatements(mExecutor);
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdown();
+	}
+
+	@Test
+	public void testAllLongs() throws InterruptedException, ExecutionException, SQLException {
+		assertArrayEquals(new long[] { 3L, 5L }, mAsync.allLongs(mStmt).get());
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testAllLongsIn() throws InterruptedException, ExecutionException, SQLException {
+		Connection con = mock(Connection.class);
+		DataSource source = mock(DataSource.class);
+		when(source.getConnection()).thenReturn(con);
+		when(con.prepareStatement("SELECT x FROM t WHERE id IN (?,?) ORDER BY x"))
+				.thenReturn(mStmt);
+		PreparedStatement stmt = mock(PreparedStatement.class);
+		ResultSet rs = mock(ResultSet.class);
+		when(con.prepareStatement("SELECT x FROM t WHERE id IN (?) ORDER BY x")).thenReturn(stmt);
+		when(stmt.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true, false);
+		when(rs.getLong(1)).thenReturn(7L);
+		AsyncStatements direct = new AsyncStatements(MoreExecutors.newDirectExecutorService());
+		assertArrayEquals(new long[] { 3L, 5L, 7L }, direct.allLongsIn(source,
+				"SELECT x FROM t WHERE %s ORDER BY x", "id", new long[] { 1L, 2L, 3L }, 2).get());
+		verify(mStmt).setLong(1, 1L);
+		verify(mStmt).setLong(2, 2L);
+		verify(stmt).setLong(1, 3L);
+		verify(con).close(); // first worker queried both chunks
+	}
+
+	@Test
+	public void testAllLongsInRejected() throws Exception {
+		Connection con = mock(Connection.class);
+		DataSource source = mock(DataSource.class);
+		when(source.getConnection()).thenReturn(con);
+		when(con.prepareStatement("SELECT x FROM t WHERE id IN (?)")).thenReturn(mStmt);
+		when(mRs.next()).thenReturn(true, false, true, false, true, false);
+		when(mRs.getLong(1)).thenReturn(3L, 5L, 7L);
+		ExecutorService executor = mock(ExecutorService.class);
+		doThrow(new RejectedExecutionException()).when(executor).execute(any(Runnable.class));
+		assertArrayEquals(new long[] { 3L, 5L, 7L }, new AsyncStatements(executor).allLongsIn(
+				source, "SELECT x FROM t WHERE %s", "id", new long[] { 1L, 2L, 3L }, 1).get());
+		verify(con).close();
+	}
+
+	@Test
+	public void testAllLongsInFailed() throws InterruptedException, SQLException {
+		SQLException failure = new SQLException();
+		Connection con = mock(Connection.class);
+		DataSource source = mock(DataSource.class);
+		when(source.getConnection()).thenReturn(con);
+		when(con.prepareStatement(anyString())).thenThrow(failure);
+		AsyncStatements direct = new AsyncStatements(MoreExecutors.newDirectExecutorService());
+		try {
+			direct.allLongsIn(source, "SELECT x FROM t WHERE %s", "id", new long[] { 1L, 2L, 3L },
+					1).get();
+		} catch (ExecutionException e) {
+			assertEquals(failure, e.getCause());
+		}
+		verify(con, times(1)).prepareStatement(anyString()); // remaining chunks not queried
+	}
+
+	@Test
+	public void testCallback() throws InterruptedException, SQLException {
+		SQLException failure = new SQLException();
+		when(mStmt.executeUpdate()).thenThrow(failure);
+		final Object[] results = new Object[2];
+		AsyncStatements direct = new AsyncStatements(MoreExecutors.newDirectExecutorService());
+		ListenableFuture<Integer> update = AsyncStatements.addCallback(direct.update(mStmt),
+				new ResultCallback<Integer>() {
+					@Override
+					public void onSuccess(Integer result) {
+						results[0] = result;
+					}
+
+					@Override
+					public void onFailure(Integer result, Throwable t) {
+						results[1] = t;
+					}
+				});
+		try {
+			update.get();
+		} catch (ExecutionException e) {
+			assertEquals(failure, e.getCause());
+		}
+		assertTrue(update.isDone());
+		assertNull(results[0]);
+		assertEquals(failure, results[1]);
+	}
+}
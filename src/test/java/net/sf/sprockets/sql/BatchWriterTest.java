@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static java.sql.Statement.SUCCESS_NO_INFO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import net.sf.sprockets.test.SprocketsTest;
+
+public class BatchWriterTest extends SprocketsTest {
+	@Mock
+	private Connection mCon;
+	@Mock
+	private PreparedStatement mStmt;
+
+	@Before
+	public void setUp() throws SQLException {
+		when(mStmt.getConnection()).thenReturn(mCon);
+		when(mCon.getAutoCommit()).thenReturn(true);
+		when(mStmt.executeBatch()).thenReturn(new int[] { 1, 1 }, new int[] { 1 });
+	}
+
+	@Test
+	public void testFinish() throws SQLException {
+		try (BatchWriter writer = new BatchWriter(mStmt, 2, Long.MAX_VALUE)) {
+			writer.addBatch(3L, 5L).setLongs(7L).setStrings("a").addBatch().addBatch(9L, 11L);
+			verify(mStmt).executeBatch();
+			writer.finish();
+			assertEquals(3L, writer.getRowCount());
+			assertEquals(0L, writer.getUnknownRowCount());
+		}
+		verify(mStmt).setLong(1, 7L);
+		verify(mStmt).setString(2, "a");
+		verify(mStmt, times(2)).executeBatch();
+		verify(mCon).setAutoCommit(false);
+		verify(mCon).commit();
+		verify(mCon, never()).rollback();
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testUnknownRowCount() throws SQLException {
+		when(mStmt.executeBatch()).thenReturn(new int[] { 2, SUCCESS_NO_INFO });
+		try (BatchWriter writer = new BatchWriter(mStmt)) {
+			writer.addBatch(3L).addBatch(5L).finish();
+			assertEquals(2L, writer.getRowCount());
+			assertEquals(1L, writer.getUnknownRowCount());
+		}
+	}
+
+	@Test
+	public void testCommitFailed() throws SQLException {
+		SQLException failure = new SQLException();
+		doThrow(failure).when(mCon).commit();
+		try (BatchWriter writer = new BatchWriter(mStmt)) {
+			writer.addBatch(3L).finish();
+			fail();
+		} catch (SQLException e) {
+			assertSame(failure, e);
+		}
+		verify(mCon).rollback();
+		verify(mCon).setAutoCommit(true);
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testMaxBytes() throws SQLException {
+		try (BatchWriter writer = new BatchWriter(mStmt, 100, 16L)) {
+			writer.addBatch(3L);
+			verify(mStmt, never()).executeBatch();
+			writer.addBatch("abcd");
+			verify(mStmt).executeBatch();
+		}
+	}
+
+	@Test
+	public void testRollback() throws SQLException {
+		try (BatchWriter writer = new BatchWriter(mStmt)) {
+			writer.addBatch(3);
+		}
+		verify(mCon).rollback();
+		verify(mCon).setAutoCommit(true);
+		verify(mStmt).close();
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static net.sf.sprockets.sql.QueryStats.UNKNOWN_SQL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import net.sf.sprockets.sql.QueryStats.Snapshot;
+import net.sf.sprockets.test.SprocketsTest;
+
+public class QueryStatsTest extends SprocketsTest {
+	private static final String SQL = "SELECT id FROM t";
+
+	@Mock
+	private PreparedStatement mStmt;
+	@Mock
+	private ResultSet mRs;
+	private final QueryStats mStats = new QueryStats();
+
+	@Before
+	public void setUp() throws SQLException {
+		when(mStmt.executeQuery()).thenReturn(mRs);
+		when(mRs.next()).thenReturn(true, true, false);
+		Statements.setQueryStats(mStats);
+	}
+
+	@After
+	public void tearDown() {
+		Statements.setQueryStats(null);
+	}
+
+	@Test
+	public void testSnapshot() throws SQLException {
+		Statements.allLongs(mStats.register(mStmt, SQL));
+		PreparedStatement failing = mStats.register(mock(PreparedStatement.class), SQL);
+		when(failing.executeUpdate()).thenThrow(new SQLException());
+		try {
+			Statements.update(failing);
+		} catch (SQLException e) {
+			// expected
+		}
+		PreparedStatement unregistered = mock(PreparedStatement.class);
+		when(unregistered.executeQuery()).thenReturn(mRs);
+		Statements.firstLong(unregistered);
+		Map<String, Snapshot> snapshot = mStats.snapshot();
+		assertEquals(2, snapshot.size());
+		Snapshot stats = snapshot.get(SQL);
+		assertEquals(2L, stats.getCount());
+		assertEquals(1L, stats.getErrorCount());
+		assertEquals(2L, stats.getRowCount());
+		long histogram = 0L;
+		for (long count : stats.getHistogram()) {
+			histogram += count;
+		}
+		assertEquals(2L, histogram);
+		assertTrue(stats.getPercentileNanos(100.0) >= stats.getMeanNanos());
+		assertEquals(1L, snapshot.get(UNKNOWN_SQL).getCount());
+	}
+
+	@Test
+	public void testReset() throws SQLException {
+		Statements.allLongs(mStats.register(mStmt, SQL));
+		mStats.reset();
+		assertTrue(mStats.snapshot().isEmpty());
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.sprockets.util.Geos;
+
+public class SQLiteFunctionsTest {
+	private Connection mCon;
+
+	@Before
+	public void setUp() throws SQLException {
+		mCon = DriverManager.getConnection("jdbc:sqlite::memory:");
+		SQLiteFunctions.register(mCon);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		mCon.close();
+	}
+
+	@Test
+	public void testFunctions() throws SQLException {
+		assertEquals(1.5, select("sqrt(2.25)"), 0.0);
+		assertEquals(Geos.cos(45.0), select("lat_cos(45)"), 1e-12);
+		assertEquals(Geos.distance(41.9028, 12.4964, 48.8566, 2.3522, KILOMETER),
+				select("distance_km(41.9028, 12.4964, 48.8566, 2.3522)"), 1e-9);
+		assertNull(select("distance_mi(1, 2, NULL, 4)"));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testArgs() throws SQLException {
+		select("sqrt(1, 2)");
+	}
+
+	/**
+	 * Get the value of the expression, or null if it's NULL.
+	 */
+	private Double select(String expr) throws SQLException {
+		String value = Statements.firstString(mCon.prepareStatement("SELECT " + expr));
+		return value != null ? Double.valueOf(value) : null;
+	}
+
+	@Test
+	public void testDistanceParams() throws SQLException {
+		try (Statement stmt = mCon.createStatement()) {
+			stmt.executeUpdate("CREATE TABLE place (id INTEGER PRIMARY KEY, lat REAL, lon REAL)");
+			stmt.executeUpdate("INSERT INTO place (lat, lon) VALUES (48.8566, 2.3522), "
+					+ "(45.4642, 9.19), (41.9028, 12.4964), (40.4168, -3.7038)");
+		}
+		PreparedStatement stmt = mCon.prepareStatement("SELECT id, "
+				+ SQLiteFunctions.distanceParams("lat", "lon", MILE, "dist") + " FROM place WHERE "
+				+ SQLite.withinParams("lat", "lon") + " AND dist <= ? ORDER BY dist");
+		SQLiteFunctions.setDistanceParams(1, stmt, 43.7696, 11.2558); // Florence
+		SQLite.setWithinParams(3, stmt, 43.7696, 11.2558, 400.0, MILE).setDouble(9, 400.0);
+		assertArrayEquals(new long[] { 3L, 2L }, Statements.allLongs(stmt));
+	}
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.text.Normalizer.Form.NFD;
+import static java.util.Locale.US;
+import static net.sf.sprockets.sql.SQLite.DATETIME_LENGTH;
+import static net.sf.sprockets.sql.SQLite.MAX_CHUNKED_VALUES;
+import static net.sf.sprockets.sql.SQLite.MAX_VARIABLE_NUMBER;
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_KM;
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_MI;
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import net.sf.sprockets.test.SprocketsTest;
+
+public class SQLiteTest extends SprocketsTest {
+	@Mock
+	private Connection mCon;
+	@Mock
+	private PreparedStatement mStmt;
+	@Mock
+	private ResultSet mRs;
+
+	@Test
+	public void testInRanges() {
+		long[] values = { 9L, 5L, 1L, 2L, 3L, 4L, 4L, 20L, 11L, 12L, 13L, 21L };
+		assertEquals("(id BETWEEN 1 AND 5 OR id IN (9,11,12,13,20,21))",
+				SQLite.inRanges("id", values).toString());
+		assertEquals(9L, values[0]);
+		assertEquals("(id BETWEEN 1 AND 5 OR id BETWEEN 11 AND 13 OR id BETWEEN 20 AND 21 "
+				+ "OR id IN (9))",
+				SQLite.inRanges("id", values, 2, new StringBuilder()).toString());
+		assertEquals("id BETWEEN 1 AND 4", SQLite.inRanges("id", new long[] { 4L, 3L, 2L, 1L })
+				.toString());
+		assertEquals("id IN (1,3)", SQLite.inRanges("id", new long[] { 3L, 1L, 3L }).toString());
+		assertEquals("id IN ()", SQLite.inRanges("id", new long[0]).toString());
+	}
+	@Test
+	public void testInRangesExtremes() {
+		long min = Long.MIN_VALUE;
+		long max = Long.MAX_VALUE;
+		assertEquals("id IN (" + min + "," + max + ")",
+				SQLite.inRanges("id", new long[] { min, max }, 2, new StringBuilder()).toString());
+		assertEquals("(id BETWEEN " + min + " AND " + (min + 1L) + " OR id BETWEEN " + (max - 1L)
+				+ " AND " + max + ")", SQLite.inRanges("id", new long[] { min, min + 1L,
+						max - 1L, max }, 2, new StringBuilder()).toString());
+		assertEquals("id BETWEEN " + (max - 3L) + " AND " + max,
+				SQLite.inRanges("id", new long[] { max, max - 1L, max - 2L, max - 3L, max })
+						.toString());
+	}
+
+
+	@Test
+	public void testDatetime() {
+		FastDateFormat format = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss",
+				TimeZone.getTimeZone("UTC"), US);
+		Random random = new Random(0L);
+		char[] chars = new char[DATETIME_LENGTH + 1];
+		for (int i = 0; i < 10000; i++) {
+			long millis = (long) ((random.nextDouble() - 0.5) * 1000000000000000L);
+			String expected = format.format(millis);
+			assertEquals(expected, SQLite.datetime(millis));
+			assertEquals(expected, SQLite.datetime(millis));
+			assertEquals(expected, SQLite.datetime(millis, new StringBuilder()).toString());
+			if (expected.length() == DATETIME_LENGTH && millis >= -62135769600000L) { // year 1
+				assertEquals(DATETIME_LENGTH + 1, SQLite.datetime(millis, chars, 1));
+				assertEquals(expected, new String(chars, 1, DATETIME_LENGTH));
+			}
+		}
+		assertEquals("1969-12-31 23:59:59", SQLite.datetime(-1L));
+		assertEquals("2000-02-29 12:00:00", SQLite.datetime(951825600999L));
+		assertEquals(DATETIME_LENGTH, SQLite.datetime(-62135769600000L, chars, 0));
+		assertEquals("0001-01-01 00:00:00", new String(chars, 0, DATETIME_LENGTH));
+		for (long millis : new long[] { -62135769600001L, 253402300800000L }) { // years 0, 10000
+			try {
+				SQLite.datetime(millis, chars, 0);
+				fail();
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testParseDatetime() {
+		Random random = new Random(0L);
+		for (int i = 0; i < 10000; i++) {
+			long millis = (long) (random.nextDouble() * 253402300799L) * 1000L; // 1970 to 9999
+			String datetime = SQLite.datetime(millis);
+			assertEquals(millis, SQLite.parseDatetime(datetime));
+			assertEquals(millis, SQLite.parseDatetime(datetime.getBytes(UTF_8), 0,
+					DATETIME_LENGTH));
+		}
+		assertEquals(-1L, SQLite.parseDatetime("1969-12-31T23:59:59.999"));
+		assertEquals(-1L, SQLite.parseDatetime("x1969-12-31T23:59:59.999x".getBytes(UTF_8), 1,
+				DATETIME_LENGTH + 4));
+		assertEquals(-900L, SQLite.parseDatetime("1969-12-31 23:59:59.1".getBytes(UTF_8), 0,
+				DATETIME_LENGTH + 2));
+		assertEquals(951782400000L, SQLite.parseDatetime("2000-02-29 00:00:00"));
+		assertEquals(1456704000000L, SQLite.parseDatetime("2016-02-29 00:00:00"));
+		assertEquals(-62135596800000L, SQLite.parseDatetime("0001-01-01 00:00:00"));
+		assertEquals(-62167219200000L, SQLite.parseDatetime("0000-01-01 00:00:00"));
+		assertArrayEquals(new long[] { 100L, Long.MIN_VALUE },
+				SQLite.parseDatetimes(Arrays.asList("1970-01-01 00:00:00.1", null)));
+	}
+
+	@Test
+	public void testParseDatetimeInvalid() {
+		for (String datetime : new String[] { "1970-01-01 0a:00:00", "1970-01-01 00:00:00.",
+				"1970-01-01 00:00:00.1234", "1970-01-01 00:00:00,1", "2017-02-31 00:00:00",
+				"2017-02-29 00:00:00", "1900-02-29 00:00:00", "2017-04-31 00:00:00",
+				"2017-13-01 00:00:00", "2017-01-00 00:00:00" }) {
+			try {
+				SQLite.parseDatetime(datetime);
+				fail(datetime);
+			} catch (IllegalArgumentException e) {
+			}
+			byte[] bytes = datetime.getBytes(UTF_8);
+			try {
+				SQLite.parseDatetime(bytes, 0, bytes.length);
+				fail(datetime);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testNormalise() {
+		Pattern diacritics = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+		for (char c = 0; c < 0x400; c++) {
+			String s = "ab" + c + "Z";
+			assertEquals(diacritics.matcher(Normalizer.normalize(s, NFD)).replaceAll("")
+					.toUpperCase(US), SQLite.normalise(s));
+		}
+		String s = "PLAIN";
+		assertSame(s, SQLite.normalise(s));
+		assertArrayEquals(new String[] { "CAFE", null, "STRASSE", "CAFE" },
+				SQLite.normalise(new String[] { "café", null, "Straße", "Café" }));
+	}
+
+	@Test
+	public void testWithin() {
+		assertEquals("lat BETWEEN 9.0 AND 11.0 AND lon BETWEEN 18.981 AND 21.019",
+				round(SQLite.within("lat", "lon", 10.0, 20.0, LATITUDE_DEGREE_KM, KILOMETER)));
+		assertEquals("lat BETWEEN 9.0 AND 11.0 AND (lon >= 178.981 OR lon <= -178.981)",
+				round(SQLite.within("lat", "lon", 10.0, -180.0, LATITUDE_DEGREE_KM, KILOMETER)));
+		assertEquals("lat BETWEEN 88.0 AND 90.0",
+				round(SQLite.within("lat", "lon", 89.0, 0.0, LATITUDE_DEGREE_MI, MILE)));
+	}
+
+	@Test
+	public void testInGeohashes() {
+		assertEquals("geohash IN (3)",
+				SQLite.inGeohashes("geohash", 45.0, 90.0, 1.0, KILOMETER, 2).toString());
+		assertEquals("geohash IN (0,1,2,3)",
+				SQLite.inGeohashes("geohash", 0.0, 0.0, 1.0, KILOMETER, 2).toString());
+	}
+
+	@Test
+	public void testDistanceParams() throws SQLException {
+		String km = String.valueOf(LATITUDE_DEGREE_KM);
+		assertEquals("(" + km + " * (? - lat)) * (" + km + " * (? - lat)) + (" + km
+				+ " * (? - lon) * lat_cos) * (" + km + " * (? - lon) * lat_cos) AS dist",
+				SQLite.distanceParams("lat", "lon", "lat_cos", KILOMETER, "dist"));
+		SQLite.setDistanceParams(2, mStmt, 10.0, 20.0);
+		verify(mStmt).setDouble(2, 10.0);
+		verify(mStmt).setDouble(3, 10.0);
+		verify(mStmt).setDouble(4, 20.0);
+		verify(mStmt).setDouble(5, 20.0);
+	}
+
+	@Test
+	public void testWithinParams() throws SQLException {
+		assertEquals("lat BETWEEN ? AND ? AND (lon BETWEEN ? AND ? OR lon BETWEEN ? AND ?)",
+				SQLite.withinParams("lat", "lon"));
+		SQLite.setWithinParams(1, mStmt, 89.0, 0.0, LATITUDE_DEGREE_MI, MILE);
+		verify(mStmt).setDouble(1, 88.0);
+		verify(mStmt).setDouble(2, 90.0);
+		verify(mStmt).setDouble(3, -180.0);
+		verify(mStmt).setDouble(4, 180.0);
+		verify(mStmt).setDouble(5, 1.0);
+		verify(mStmt).setDouble(6, 0.0);
+	}
+
+	/**
+	 * Round the numbers in the SQL to three decimal places.
+	 */
+	private static String round(CharSequence sql) {
+		StringBuffer s = new StringBuffer(sql.length());
+		Matcher m = Pattern.compile("-?\\d+\\.\\d+").matcher(sql);
+		while (m.find()) {
+			m.appendReplacement(s, String.valueOf(Math.round(Double.parseDouble(m.group()) * 1000.0)
+					/ 1000.0));
+		}
+		return m.appendTail(s).toString();
+	}
+
+	@Test
+	public void testInParams() {
+		assertEquals("id IN (?,?,?)", SQLite.inParams("id", 3).toString());
+		assertEquals("id IN ()", SQLite.inParams("id", 0).toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInParamsMax() {
+		SQLite.inParams("id", MAX_VARIABLE_NUMBER + 1);
+	}
+
+	@Test
+	public void testAllLongsIn() throws SQLException {
+		when(mCon.prepareStatement(anyString())).thenReturn(mStmt);
+		when(mStmt.executeQuery()).thenReturn(mRs);
+		when(mRs.next()).thenReturn(true, false, true, false);
+		when(mRs.getLong(1)).thenReturn(3L, 5L);
+		long[] values = new long[MAX_VARIABLE_NUMBER + 2];
+		for (int i = 0; i <= MAX_VARIABLE_NUMBER; i++) {
+			values[i] = MAX_VARIABLE_NUMBER - i;
+		}
+		values[MAX_VARIABLE_NUMBER + 1] = 7L; // duplicate
+		assertArrayEquals(new long[] { 3L, 5L }, SQLite.allLongsIn(new StatementCache(mCon, 4),
+				"SELECT x FROM t WHERE %s", "id", values));
+		verify(mCon).prepareStatement("SELECT x FROM t WHERE id IN (?)");
+		verify(mStmt).setLong(1, 0L);
+		verify(mStmt).setLong(1, (long) MAX_VARIABLE_NUMBER);
+	}
+
+	@Test
+	public void testAllLongsInTable() throws SQLException {
+		try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+			try (Statement stmt = con.createStatement()) {
+				stmt.executeUpdate("CREATE TABLE t (id INTEGER PRIMARY KEY)");
+				stmt.executeUpdate("WITH RECURSIVE c (x) AS (SELECT 1 UNION ALL SELECT x + 1 "
+						+ "FROM c WHERE x < " + 2 * MAX_CHUNKED_VALUES + ") INSERT INTO t "
+						+ "SELECT x FROM c");
+			}
+			StatementCache cache = new StatementCache(con, 4);
+			String sql = "SELECT id FROM t WHERE %s ORDER BY id";
+			long[] values = new long[2 * MAX_CHUNKED_VALUES];
+			long[] expected = new long[MAX_CHUNKED_VALUES + 1];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = i % (MAX_CHUNKED_VALUES + 2); // includes 0, which isn't an id
+			}
+			for (int i = 0; i < expected.length; i++) {
+				expected[i] = i + 1;
+			}
+			assertArrayEquals(expected, SQLite.allLongsIn(cache, sql, "id", values));
+			assertEquals(0L, Statements.firstLong(
+					con.prepareStatement("SELECT count(*) FROM temp.sprockets_in")));
+			Arrays.fill(values, 1L); // chunked, only queried once
+			assertArrayEquals(new long[] { 1L }, SQLite.allLongsIn(cache, sql, "id", values));
+		}
+	}
+
+	@Test
+	public void testAllRowIds() throws SQLException {
+		try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+			try (Statement stmt = con.createStatement()) {
+				stmt.executeUpdate("CREATE TABLE t (id INTEGER PRIMARY KEY, name TEXT UNIQUE)");
+				stmt.executeUpdate("INSERT INTO t (id, name) VALUES (4, 'a')");
+			}
+			con.setAutoCommit(false);
+			String sql = "INSERT OR IGNORE INTO t (name) VALUES (?)";
+			PreparedStatement stmt = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			stmt.setString(1, "b");
+			stmt.addBatch();
+			stmt.setString(1, "c");
+			stmt.addBatch();
+			assertArrayEquals(new long[] { 5L, 6L }, SQLite.allRowIds(stmt));
+			stmt = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			stmt.setString(1, "a"); // ignored
+			stmt.addBatch();
+			stmt.setString(1, "d");
+			stmt.addBatch();
+			try {
+				SQLite.allRowIds(stmt);
+				fail();
+			} catch (SQLException e) {
+				assertTrue(stmt.isClosed());
+			}
+			con.rollback();
+		}
+	}
+
+	@Test
+	public void testAllRowIdsAutoCommit() throws SQLException {
+		when(mStmt.getConnection()).thenReturn(mCon);
+		when(mCon.getAutoCommit()).thenReturn(true);
+		try {
+			SQLite.allRowIds(mStmt);
+			fail();
+		} catch (IllegalStateException e) {
+			verify(mStmt).close();
+		}
+	}
+}
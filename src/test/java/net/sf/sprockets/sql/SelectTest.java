@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SelectTest {
+	@Test
+	public void testSql() {
+		Select select = new Select.Builder().columns(SQLite.alias("p.name"), SQLite.count("v.id"))
+				.from("person p JOIN visit v ON v.person_id = p.id").where("v.created >= ?")
+				.groupBy("p.id").orderBy("id DESC").limit().distinct().build();
+		assertEquals("SELECT DISTINCT p.name AS name, count(v.id) AS id FROM person p JOIN visit v "
+				+ "ON v.person_id = p.id WHERE v.created >= ? GROUP BY p.id ORDER BY id DESC "
+				+ "LIMIT ?", select.sql());
+		assertSame(select.sql(), select.sql());
+	}
+
+	@Test
+	public void testSqlIn() {
+		Select select = new Select.Builder().columns("name").from("person").where("age > ?")
+				.where("city = ?").whereIn("id").having("count(*) > ?").groupBy("name").build();
+		assertEquals("SELECT name FROM person WHERE (age > ?) AND (city = ?) AND (id IN (?,?,?)) "
+				+ "GROUP BY name HAVING count(*) > ?", select.sql(3));
+		assertEquals("SELECT name FROM person WHERE (age > ?) AND (city = ?) AND (id IN ()) "
+				+ "GROUP BY name HAVING count(*) > ?", select.sql(0));
+		assertSame(select.sql(3), select.sql(3));
+		assertEquals(3, select.getInIndex());
+	}
+
+	@Test
+	public void testSqlOr() {
+		assertEquals("SELECT name FROM person WHERE (a = 1 OR b = 2) AND (id IN (?,?))",
+				new Select.Builder().columns("name").from("person").where("a = 1 OR b = 2")
+						.whereIn("id").build().sql(2));
+		assertEquals("SELECT name FROM person WHERE a = 1 OR b = 2", new Select.Builder()
+				.columns("name").from("person").where("a = 1 OR b = 2").build().sql());
+		assertEquals("SELECT name FROM person WHERE id IN (?)", new Select.Builder()
+				.columns("name").from("person").whereIn("id").build().sql(1));
+	}
+
+	@Test
+	public void testInIndexQuoted() {
+		assertEquals(1, new Select.Builder().columns(SQLite.groupConcat("name", "?")).from("person")
+				.whereIn("id").build().getInIndex());
+		assertEquals(2, new Select.Builder().columns("\"why?\"", "[a?]", "`b?`").from("person")
+				.where("name = 'it''s?'").where("age > ?").whereIn("id").build().getInIndex());
+		assertEquals(3, new Select.Builder().columns("name /* why? */", "age -- why?\n")
+				.from("person").where("age > ? /* a?*/").where("city = ?").whereIn("id").build()
+				.getInIndex());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSqlWithoutInParams() {
+		new Select.Builder().columns("name").from("person").whereIn("id").build().sql();
+	}
+}
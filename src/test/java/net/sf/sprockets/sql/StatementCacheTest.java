@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static java.sql.Statement.RETURN_GENERATED_KEYS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import net.sf.sprockets.test.SprocketsTest;
+
+public class StatementCacheTest extends SprocketsTest {
+	@Mock
+	private Connection mCon;
+	private StatementCache mCache;
+
+	@Before
+	public void setUp() throws SQLException {
+		Answer<PreparedStatement> newStmt = new Answer<PreparedStatement>() {
+			@Override
+			public PreparedStatement answer(InvocationOnMock invocation) {
+				return mock(PreparedStatement.class);
+			}
+		};
+		when(mCon.prepareStatement(anyString())).then(newStmt);
+		when(mCon.prepareStatement(anyString(), eq(RETURN_GENERATED_KEYS))).then(newStmt);
+		mCache = new StatementCache(mCon, 2);
+	}
+
+	@Test
+	public void testReuse() throws SQLException {
+		PreparedStatement stmt = mCache.prepare("a");
+		mCache.release(stmt);
+		assertSame(stmt, mCache.prepare("a"));
+		assertNotSame(stmt, mCache.prepare("a", RETURN_GENERATED_KEYS));
+		assertEquals(1L, mCache.getHitCount());
+		assertEquals(2L, mCache.getMissCount());
+		verify(stmt).clearParameters();
+		verify(stmt, never()).close();
+	}
+
+	@Test
+	public void testFailed() throws SQLException {
+		PreparedStatement stmt = mCache.prepare("a");
+		SQLException failure = new SQLException();
+		when(stmt.executeQuery()).thenThrow(failure);
+		try {
+			Statements.firstInt(stmt, mCache);
+			fail();
+		} catch (SQLException e) {
+			assertSame(failure, e);
+		}
+		verify(stmt).close();
+		assertEquals(0, mCache.size());
+		assertNotSame(stmt, mCache.prepare("a"));
+		mCache.close();
+		verify(stmt).close(); // not checked out anymore
+	}
+
+	@Test
+	public void testNested() throws SQLException {
+		PreparedStatement outer = mCache.prepare("a");
+		PreparedStatement inner = mCache.prepare("a");
+		assertNotSame(outer, inner);
+		mCache.release(inner);
+		mCache.release(outer);
+		verify(outer).close();
+		assertEquals(1, mCache.size());
+	}
+
+	@Test
+	public void testEviction() throws SQLException {
+		PreparedStatement a = mCache.prepare("a");
+		PreparedStatement b = mCache.prepare("b");
+		PreparedStatement c = mCache.prepare("c");
+		mCache.release(a);
+		mCache.release(b);
+		mCache.release(c);
+		verify(a).close();
+		verify(b, never()).close();
+		assertEquals(1L, mCache.getEvictionCount());
+		assertEquals(2, mCache.size());
+	}
+
+	@Test
+	public void testClose() throws SQLException {
+		PreparedStatement idle = mCache.prepare("a");
+		PreparedStatement inUse = mCache.prepare("b");
+		mCache.release(idle);
+		mCache.close();
+		verify(idle).close();
+		verify(inUse).close();
+		assertEquals(0, mCache.size());
+	}
+
+	@Test
+	public void testStatements() throws SQLException {
+		PreparedStatement stmt = mCache.prepare("a");
+		when(stmt.executeUpdate()).thenReturn(3);
+		assertEquals(3, Statements.update(stmt, mCache));
+		verify(stmt, never()).close();
+		assertSame(stmt, mCache.prepare("a"));
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.collections.primitives.ArrayLongList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import net.sf.sprockets.sql.Statements.LongVisitor;
+import net.sf.sprockets.test.SprocketsTest;
+import net.sf.sprockets.util.LongArray;
+
+public class StatementsTest extends SprocketsTest {
+	@Mock
+	private PreparedStatement mStmt;
+	@Mock
+	private ResultSet mRs;
+
+	@Before
+	public void setUp() throws SQLException {
+		when(mStmt.executeQuery()).thenReturn(mRs);
+		when(mRs.next()).thenReturn(true, true, true, false);
+		when(mRs.getLong(1)).thenReturn(3L, 5L, 7L);
+	}
+
+	@Test
+	public void testEachLong() throws SQLException {
+		final ArrayLongList values = new ArrayLongList();
+		assertEquals(3L, Statements.eachLong(mStmt, 100, new LongVisitor() {
+			@Override
+			public boolean visit(long value) {
+				return values.add(value);
+			}
+		}));
+		assertEquals(3, values.size());
+		assertEquals(7L, values.get(2));
+		verify(mStmt).setFetchSize(100);
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testEachLongStop() throws SQLException {
+		assertEquals(1L, Statements.eachLong(mStmt, new LongVisitor() {
+			@Override
+			public boolean visit(long value) {
+				return false;
+			}
+		}));
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testFailed() throws SQLException {
+		SQLException failure = new SQLException();
+		when(mStmt.executeQuery()).thenThrow(failure);
+		try {
+			Statements.allLongs(mStmt);
+			fail();
+		} catch (SQLException e) {
+			assertSame(failure, e);
+		}
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testAllLongsArray() throws SQLException {
+		LongArray all = new LongArray(1).add(1L);
+		assertEquals(3, Statements.allLongs(mStmt, all));
+		assertArrayEquals(new long[] { 1L, 3L, 5L, 7L }, all.toArray());
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testAllLongKeys() throws SQLException {
+		when(mStmt.executeBatch()).thenReturn(new int[] { 1, 1, 1 });
+		when(mStmt.getGeneratedKeys()).thenReturn(mRs);
+		assertArrayEquals(new long[] { 3L, 5L, 7L }, Statements.allLongKeys(mStmt));
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testAllColumns() throws SQLException {
+		when(mRs.getInt(2)).thenReturn(1, 2, 3);
+		when(mRs.getDouble(3)).thenReturn(0.5, 1.5, 2.5);
+		Object[] cols = Statements.allColumns(mStmt, long.class, int.class, double.class);
+		assertArrayEquals(new long[] { 3L, 5L, 7L }, (long[]) cols[0]);
+		assertArrayEquals(new int[] { 1, 2, 3 }, (int[]) cols[1]);
+		assertArrayEquals(new double[] { 0.5, 1.5, 2.5 }, (double[]) cols[2], 0.0);
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testAllColumnsUnsupported() throws SQLException {
+		try {
+			Statements.allColumns(mStmt, long.class, String.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			verify(mStmt).close();
+		}
+	}
+
+	@Test
+	public void testMapLongs() throws SQLException, IOException {
+		LongBuffer longs = Statements.mapLongs(mStmt);
+		assertTrue(longs.isReadOnly());
+		assertEquals(3, longs.remaining());
+		assertEquals(3L, longs.get());
+		assertEquals(5L, longs.get());
+		assertEquals(7L, longs.get());
+		verify(mStmt).close();
+	}
+
+	@Test
+	public void testMapLongsFailed() throws SQLException {
+		try {
+			Statements.mapLongs(mStmt, new File(System.getProperty("java.io.tmpdir"))); // dir
+			fail();
+		} catch (IOException e) {
+			verify(mStmt).close();
+		}
+	}
+
+	@Test
+	public void testAddBatches() throws SQLException {
+		Statements.addBatches(mStmt, new long[][] { { 3L, 5L }, { 7L, 9L } });
+		verify(mStmt).setLong(1, 3L);
+		verify(mStmt).setLong(2, 9L);
+		verify(mStmt, times(2)).addBatch();
+	}
+
+	@Test
+	public void testAddBatchesFlat() throws SQLException {
+		Statements.addBatches(mStmt, 2, 3, 5, 7, 9, 11, 13);
+		verify(mStmt).setInt(1, 3);
+		verify(mStmt).setInt(2, 13);
+		verify(mStmt, times(3)).addBatch();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddBatchesFlatArity() throws SQLException {
+		Statements.addBatches(mStmt, 2, 3L, 5L, 7L);
+	}
+}
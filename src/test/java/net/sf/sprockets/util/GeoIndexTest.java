@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.sprockets.util;
+
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_KM;
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_MI;
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class GeoIndexTest {
+	private static final int POINTS = 40000;
+
+	private final Random mRandom = new Random(42L);
+	private final double[] mLatitudes = new double[POINTS];
+	private final double[] mLongitudes = new double[POINTS];
+	private final long[] mIds = new long[POINTS];
+
+	public GeoIndexTest() {
+		for (int i = 0; i < POINTS; i++) {
+			if (i % 2 == 0) { // clustered around Rome
+				mLatitudes[i] = 41.9 + mRandom.nextGaussian() * 0.5;
+				mLongitudes[i] = 12.5 + mRandom.nextGaussian() * 0.5;
+			} else {
+				mLatitudes[i] = mRandom.nextDouble() * 180.0 - 90.0;
+				mLongitudes[i] = mRandom.nextDouble() * 360.0 - 180.0;
+			}
+			mIds[i] = i * 10L;
+		}
+	}
+
+	@Test
+	public void testWithin() {
+		GeoIndex index = new GeoIndex(mLatitudes, mLongitudes, mIds);
+		assertEquals(POINTS, index.size());
+		assertWithin(index, 41.9, 12.5, 10.0, KILOMETER);
+		assertWithin(index, 42.0, 13.0, 100.0, MILE);
+		assertWithin(index, -89.9, 0.0, 500.0, KILOMETER);
+		assertWithin(index, 0.0, 179.9, 1000.0, KILOMETER);
+	}
+
+	@Test
+	public void testNearest() {
+		GeoIndex index = new GeoIndex(mLatitudes, mLongitudes, mIds);
+		assertNearest(index, 41.9, 12.5, 10);
+		assertNearest(index, -60.0, -120.0, 5);
+		assertNearest(index, 89.9, 45.0, 20);
+		assertEquals(0, index.nearest(0.0, 0.0, 0).length);
+	}
+
+	@Test
+	public void testParallel() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			GeoIndex index = new GeoIndex(mLatitudes, mLongitudes, mIds, pool);
+			GeoIndex serial = new GeoIndex(mLatitudes, mLongitudes, mIds);
+			assertArrayEquals(serial.nearest(41.9, 12.5, 50), index.nearest(41.9, 12.5, 50));
+			assertWithin(index, 45.0, 10.0, 300.0, KILOMETER);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSmall() {
+		GeoIndex index = new GeoIndex(new double[0], new double[0], new long[0]);
+		assertEquals(0, index.within(0.0, 0.0, 10.0, KILOMETER).length);
+		assertEquals(0, index.nearest(0.0, 0.0, 3).length);
+		index = new GeoIndex(new double[] { 1.0, 1.0 }, new double[] { 2.0, 2.0 },
+				new long[] { 7L, 9L });
+		long[] ids = index.nearest(50.0, 50.0, 3);
+		Arrays.sort(ids);
+		assertArrayEquals(new long[] { 7L, 9L }, ids);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalid() {
+		new GeoIndex(new double[] { 91.0 }, new double[] { 0.0 }, new long[] { 1L });
+	}
+
+	private void assertWithin(GeoIndex index, double lat, double lon, double radius,
+			MeasureUnit unit) {
+		double degree = unit == MILE ? LATITUDE_DEGREE_MI : LATITUDE_DEGREE_KM;
+		LongArray expected = new LongArray();
+		for (int i = 0; i < POINTS; i++) {
+			if (distanceSquared(lat, lon, i, degree) <= radius * radius) {
+				expected.add(mIds[i]);
+			}
+		}
+		long[] actual = index.within(lat, lon, radius, unit);
+		Arrays.sort(actual);
+		assertArrayEquals(expected.toArray(), actual);
+	}
+
+	private void assertNearest(GeoIndex index, double lat, double lon, int count) {
+		long[] actual = index.nearest(lat, lon, count);
+		assertEquals(count, actual.length);
+		double[] distances = new double[POINTS];
+		for (int i = 0; i < POINTS; i++) {
+			distances[i] = distanceSquared(lat, lon, i, LATITUDE_DEGREE_KM);
+		}
+		double[] sorted = distances.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < count; i++) {
+			assertEquals(sorted[i], distances[(int) (actual[i] / 10L)], 0.0);
+		}
+	}
+
+	private double distanceSquared(double lat, double lon, int i, double degree) {
+		double y = degree * (lat - mLatitudes[i]);
+		double x = degree * (lon - mLongitudes[i]) * Geos.cos(mLatitudes[i]);
+		return x * x + y * y;
+	}
+}
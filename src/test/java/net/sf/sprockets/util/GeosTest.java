@@ -17,7 +17,16 @@
 
 package net.sf.sprockets.util;
 
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_KM;
+import static net.sf.sprockets.util.Geos.LATITUDE_DEGREE_MI;
+import static net.sf.sprockets.util.MeasureUnit.KILOMETER;
+import static net.sf.sprockets.util.MeasureUnit.MILE;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -26,4 +35,129 @@ public class GeosTest {
 	public void testCos() {
 		assertEquals(0.9763588514046458, Geos.cos(12.483353), 0.0);
 	}
+
+	@Test
+	public void testDistance() {
+		assertEquals(0.0, Geos.distance(41.9, 12.5, 41.9, 12.5, KILOMETER), 0.0);
+		/* Rome to Paris */
+		assertEquals(1105.28, Geos.distance(41.9028, 12.4964, 48.8566, 2.3522, KILOMETER), 0.01);
+		assertEquals(686.79, Geos.distance(41.9028, 12.4964, 48.8566, 2.3522, MILE), 0.01);
+		/* across the antimeridian and to the antipode */
+		assertEquals(Geos.distance(0.0, 179.5, 0.0, -179.5, KILOMETER),
+				Geos.distance(0.0, -0.5, 0.0, 0.5, KILOMETER), 1e-9);
+		assertEquals(Math.PI * Geos.EARTH_RADIUS_KM, Geos.distance(0.0, 0.0, 0.0, 180.0, KILOMETER),
+				1e-6);
+	}
+
+	@Test
+	public void testVincenty() {
+		/* Flinders Peak to Buninyong */
+		assertEquals(54.972271, Geos.vincenty(-37.95103342, 144.42486789, -37.65282114,
+				143.92649554, KILOMETER), 1e-6);
+		assertEquals(54.972271 / 1.609344, Geos.vincenty(-37.95103342, 144.42486789,
+				-37.65282114, 143.92649554, MILE), 1e-6);
+		assertEquals(0.0, Geos.vincenty(10.0, 20.0, 10.0, 20.0, KILOMETER), 0.0);
+		assertEquals(Geos.vincenty(0.0, 179.5, 1.0, -179.5, KILOMETER),
+				Geos.vincenty(0.0, -0.5, 1.0, 0.5, KILOMETER), 1e-9);
+	}
+
+	@Test
+	public void testApproximations() {
+		double vincenty = Geos.vincenty(45.0, 9.2, 45.5, 9.9, KILOMETER);
+		assertEquals(vincenty, Geos.distance(45.0, 9.2, 45.5, 9.9, KILOMETER), vincenty * 0.006);
+		assertEquals(vincenty, Geos.equirectangular(45.0, 9.2, 45.5, 9.9, KILOMETER),
+				vincenty * 0.006);
+		assertEquals(vincenty, Geos.approximate(45.0, 9.2, 45.5, 9.9, KILOMETER), vincenty * 0.015);
+		assertEquals(Geos.equirectangular(0.0, 179.5, 1.0, -179.5, MILE),
+				Geos.equirectangular(0.0, -0.5, 1.0, 0.5, MILE), 1e-9);
+		double approximate = Geos.approximate(45.0, 9.2, 45.5, 9.9, MILE);
+		double y = LATITUDE_DEGREE_MI * 0.5;
+		double x = LATITUDE_DEGREE_MI * 0.7 * Geos.cos(45.5);
+		assertEquals(Math.sqrt(x * x + y * y), approximate, 1e-9);
+	}
+
+	@Test
+	public void testGeohash() {
+		long geohash = Geos.geohash(57.64911, 10.40744, 55);
+		assertEquals("u4pruydqqvj", Geos.geohashString(geohash, 55));
+		assertEquals(geohash >>> 25, Geos.geohash(57.64911, 10.40744, 30));
+		assertEquals(0L, Geos.geohash(-90.0, -180.0, 60));
+		assertEquals((1L << 60) - 1L, Geos.geohash(90.0, 180.0, 60));
+		assertEquals(1L, Geos.geohash(0.0, 0.0, 1));
+	}
+
+	@Test
+	public void testBox() {
+		assertArrayEquals(new double[] { -1.0, 1.0, -1.0, 1.0, 1.0, 0.0 },
+				Geos.box(0.0, 0.0, LATITUDE_DEGREE_KM, KILOMETER), 1e-3);
+		assertArrayEquals(new double[] { 88.0, 90.0, -180.0, 180.0, 1.0, 0.0 },
+				Geos.box(89.0, 0.0, LATITUDE_DEGREE_MI, MILE), 1e-9);
+		double[] box = Geos.box(0.0, 179.5, LATITUDE_DEGREE_KM, KILOMETER);
+		assertEquals(178.5, box[2], 1e-3);
+		assertEquals(180.0, box[3], 0.0);
+		assertEquals(-180.0, box[4], 0.0);
+		assertEquals(-179.5, box[5], 1e-3);
+	}
+
+	@Test
+	public void testGeohashes() {
+		long[] geohashes = Geos.geohashes(57.64911, 10.40744, 1.0, KILOMETER, 30);
+		assertTrue(geohashes.length > 1);
+		assertTrue(Arrays.binarySearch(geohashes, Geos.geohash(57.64911, 10.40744, 30)) >= 0);
+		long[] sorted = geohashes.clone();
+		Arrays.sort(sorted);
+		assertArrayEquals(sorted, geohashes);
+		/* both sides of the antimeridian */
+		geohashes = Geos.geohashes(0.0, 179.99, 5.0, KILOMETER, 20);
+		assertTrue(Arrays.binarySearch(geohashes, Geos.geohash(0.0, 179.99, 20)) >= 0);
+		assertTrue(Arrays.binarySearch(geohashes, Geos.geohash(0.0, -179.99, 20)) >= 0);
+		assertArrayEquals(new long[] { 0L, 1L }, Geos.geohashes(0.0, 0.0, 10000.0, KILOMETER, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGeohashesTooMany() {
+		Geos.geohashes(0.0, 0.0, 100.0, KILOMETER, 40);
+	}
+
+	@Test
+	public void testDistances() {
+		double[] lats = { 41.9, 48.9, -33.9 };
+		double[] lons = { 12.5, 2.4, 151.2 };
+		double[] cosines = Geos.cosines(lats);
+		assertEquals(Geos.cos(48.9), cosines[1], 0.0);
+		double[] distances = Geos.distances(45.0, 9.2, lats, lons, cosines, MILE, new double[4]);
+		for (int i = 0; i < lats.length; i++) {
+			double y = LATITUDE_DEGREE_MI * (45.0 - lats[i]);
+			double x = LATITUDE_DEGREE_MI * (9.2 - lons[i]) * cosines[i];
+			assertEquals(x * x + y * y, distances[i], 1e-6);
+		}
+		assertEquals(0.0, distances[3], 0.0);
+		distances = Geos.distances(45.0, 9.2, lats, lons, cosines, 1, 2, MILE, new double[2]);
+		assertEquals(distances[1], Geos.distances(45.0, 9.2, lats, lons, cosines, MILE,
+				new double[3])[2], 0.0);
+	}
+
+	@Test
+	public void testNearest() {
+		Random random = new Random(7L);
+		int n = 5000;
+		double[] lats = new double[n];
+		double[] lons = new double[n];
+		for (int i = 0; i < n; i++) {
+			lats[i] = random.nextDouble() * 20.0 + 35.0;
+			lons[i] = random.nextDouble() * 30.0 - 10.0;
+		}
+		double[] cosines = Geos.cosines(lats);
+		int[] nearest = Geos.nearest(45.0, 9.2, lats, lons, cosines, 25);
+		double[] distances = Geos.distances(45.0, 9.2, lats, lons, cosines, KILOMETER,
+				new double[n]);
+		double[] sorted = distances.clone();
+		Arrays.sort(sorted);
+		assertEquals(25, nearest.length);
+		for (int i = 0; i < nearest.length; i++) {
+			assertEquals(sorted[i], distances[nearest[i]], 0.0);
+		}
+		assertEquals(n, Geos.nearest(0.0, 0.0, lats, lons, cosines, n + 1).length);
+		assertEquals(0, Geos.nearest(0.0, 0.0, lats, lons, cosines, 0).length);
+	}
 }
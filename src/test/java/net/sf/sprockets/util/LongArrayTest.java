@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 pushbit <pushbit@gmail.com>
+ *
+ * This file is part of Sprockets.
+ *
+ * Sprockets is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sprockets is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with Sprockets. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.sf.sprockets.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LongArrayTest {
+	@Test
+	public void testAdd() {
+		LongArray array = new LongArray(0);
+		for (long i = 0; i < 100; i++) {
+			array.add(i);
+		}
+		assertEquals(100, array.size());
+		assertEquals(42L, array.get(42));
+	}
+
+	@Test
+	public void testClear() {
+		LongArray array = new LongArray(2).add(3L).add(5L);
+		long[] values = array.array();
+		assertTrue(array.clear().isEmpty());
+		array.add(7L);
+		assertSame(values, array.array());
+		assertArrayEquals(new long[] { 7L }, array.toArray());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfBounds() {
+		new LongArray().add(3L).clear().get(0);
+	}
+}